@@ -107,6 +107,80 @@ VALUES
 (5, 9);  -- role_id 5, category_package_id 9
 
 
+-- Receipts attached to expenses; the content lives in the receipt store under its SHA-256 hash
+CREATE TABLE receipt (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    expense_id INT,
+    file_name VARCHAR(255),
+    content_type VARCHAR(100),
+    content_hash CHAR(64),
+    size BIGINT,
+    upload_date DATETIME,
+    FOREIGN KEY (expense_id) REFERENCES expense(id)
+);
+
+
+-- Version counters of the reference data; every instance polls them to drop its cached copies after a change
+CREATE TABLE change_version (
+    name VARCHAR(50) PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+INSERT INTO change_version (name, version) VALUES
+('role', 0), ('employee', 0), ('category', 0), ('category_package', 0), ('role_category_package', 0);
+
+-- Bump the counters on direct SQL changes as well (the application bumps them itself for its own writes)
+CREATE TRIGGER role_insert_version AFTER INSERT ON role FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'role';
+CREATE TRIGGER role_update_version AFTER UPDATE ON role FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'role';
+CREATE TRIGGER role_delete_version AFTER DELETE ON role FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'role';
+CREATE TRIGGER employee_insert_version AFTER INSERT ON employee FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'employee';
+CREATE TRIGGER employee_update_version AFTER UPDATE ON employee FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'employee';
+CREATE TRIGGER employee_delete_version AFTER DELETE ON employee FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'employee';
+CREATE TRIGGER categories_insert_version AFTER INSERT ON categories FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'category';
+CREATE TRIGGER categories_update_version AFTER UPDATE ON categories FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'category';
+CREATE TRIGGER categories_delete_version AFTER DELETE ON categories FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'category';
+CREATE TRIGGER category_package_insert_version AFTER INSERT ON category_package FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'category_package';
+CREATE TRIGGER category_package_update_version AFTER UPDATE ON category_package FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'category_package';
+CREATE TRIGGER category_package_delete_version AFTER DELETE ON category_package FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'category_package';
+CREATE TRIGGER role_category_package_insert_version AFTER INSERT ON role_category_package FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'role_category_package';
+CREATE TRIGGER role_category_package_update_version AFTER UPDATE ON role_category_package FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'role_category_package';
+CREATE TRIGGER role_category_package_delete_version AFTER DELETE ON role_category_package FOR EACH ROW
+    UPDATE change_version SET version = version + 1 WHERE name = 'role_category_package';
+
+
+-- Approved expenses waiting for (or already delivered to) payroll; written in the same transaction as the approval
+CREATE TABLE payroll_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    message_id VARCHAR(36),
+    expense_id INT,
+    employee_id INT,
+    category_id INT,
+    amount INT,
+    approval_date DATETIME,
+    created_at DATETIME,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME,
+    dispatched_at DATETIME,
+    last_error VARCHAR(255),
+    INDEX idx_payroll_outbox_pending (dispatched_at, id),
+    UNIQUE KEY uk_payroll_outbox_expense (expense_id)
+);
+
+
 -- Verify the data
 SELECT * FROM role;
 SELECT * FROM employee;
@@ -114,7 +188,9 @@ SELECT * FROM categories;
 SELECT * FROM expense_status;
 SELECT * FROM expense;	
 SELECT * FROM category_package;
-SELECT * FROM role_category_package;											
+SELECT * FROM role_category_package;
+SELECT * FROM change_version;
+SELECT * FROM payroll_outbox;											
 show tables;
 
 
@@ -0,0 +1,120 @@
+package com.example.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DataSource handing out connections of the shard selected for the current thread (see ShardRouter.onShard).
+ * Without a selection it falls back to shard 0, which also serves the replicated reference tables.
+ * Expense IDs are allocated in one fixed range per shard, so the shard of an expense follows from its ID.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final List<DataSource> shards;
+
+    private final int idRangeSize;
+
+    public ShardRoutingDataSource(List<DataSource> shards, int idRangeSize) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard must be configured (expense.sharding.shards).");
+        }
+        if ((long) shards.size() * idRangeSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("expense.sharding.id-range-size is too large for " + shards.size()
+                    + " shards: expense IDs must fit in an int.");
+        }
+        this.shards = List.copyOf(shards);
+        this.idRangeSize = idRangeSize;
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+    }
+
+    /**
+     * @return The shard selected for the current thread, or null for the default shard
+     */
+    public static Integer getCurrentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    /**
+     * Selects the shard for connections obtained by the current thread.
+     * @param shard The shard index, or null for the default shard
+     */
+    public static void setCurrentShard(Integer shard) {
+        if (shard == null) {
+            CURRENT_SHARD.remove();
+        } else {
+            CURRENT_SHARD.set(shard);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public DataSource getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    public int getIdRangeSize() {
+        return idRangeSize;
+    }
+
+    /**
+     * @param expenseId An expense ID
+     * @return The shard whose ID range contains the ID
+     * @throws IllegalArgumentException If the ID lies past the range of the last shard: no expense has such an ID
+     */
+    public int shardForId(int expenseId) {
+        if (expenseId <= 0) {
+            return 0;
+        }
+        int shard = (expenseId - 1) / idRangeSize;
+        if (shard >= shards.size()) {
+            throw new IllegalArgumentException("Error: Expense not found (ID " + expenseId
+                    + " is outside the ID ranges of the shards).");
+        }
+        return shard;
+    }
+
+    /**
+     * Checks an ID the shard's auto-increment has just generated. Once a shard has used up its ID range, its IDs
+     * run into the next shard's range (or past the last one), where the expenses would be looked up on the wrong shard.
+     * @param shard The shard the expense was inserted into
+     * @param expenseId The generated ID
+     * @throws IllegalStateException If the ID is outside the shard's range
+     */
+    public void checkIdInRange(int shard, int expenseId) {
+        long first = (long) shard * idRangeSize + 1;
+        long last = first + idRangeSize - 1;
+        if (expenseId < first || expenseId > last) {
+            throw new IllegalStateException("Expense ID " + expenseId + " generated on shard " + shard
+                    + " is outside its ID range " + first + "-" + last + ": the shard's ID range is exhausted.");
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CURRENT_SHARD.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
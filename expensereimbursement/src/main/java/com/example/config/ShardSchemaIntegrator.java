@@ -0,0 +1,84 @@
+package com.example.config;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaExport;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumSet;
+import java.util.Locale;
+
+/**
+ * Prepares the shards while Hibernate boots.
+ * Hibernate applies spring.jpa.hibernate.ddl-auto only to the default shard; the same action is applied here to
+ * the other shards with the same mapping metadata. Each shard's expense table is then moved to the start of its
+ * ID range, which makes expense IDs globally unique.
+ */
+class ShardSchemaIntegrator implements Integrator {
+
+    private final ShardRoutingDataSource dataSource;
+
+    private final String ddlAuto;
+
+    ShardSchemaIntegrator(ShardRoutingDataSource dataSource, String ddlAuto) {
+        this.dataSource = dataSource;
+        this.ddlAuto = ddlAuto == null ? "none" : ddlAuto.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        for (int shard = 1; shard < dataSource.getShardCount(); shard++) {
+            // Hibernate's connection provider is the routing DataSource, so this runs against the selected shard
+            ShardRoutingDataSource.setCurrentShard(shard);
+            try {
+                switch (ddlAuto) {
+                    case "create", "create-drop" -> new SchemaExport().create(EnumSet.of(TargetType.DATABASE), metadata);
+                    case "create-only" -> new SchemaExport().createOnly(EnumSet.of(TargetType.DATABASE), metadata);
+                    case "update" -> new SchemaUpdate().execute(EnumSet.of(TargetType.DATABASE), metadata);
+                    default -> {
+                        // none / validate: the schema is managed outside the application
+                    }
+                }
+                reserveIdRange(shard);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not prepare shard " + shard + ": " + e.getMessage(), e);
+            } finally {
+                ShardRoutingDataSource.setCurrentShard(null);
+            }
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    // Moves the shard's expense auto-increment to the first ID of its range, unless it is already past it
+    private void reserveIdRange(int shard) throws SQLException {
+        long first = (long) shard * dataSource.getIdRangeSize() + 1;
+        try (Connection connection = dataSource.getShard(shard).getConnection();
+             Statement statement = connection.createStatement()) {
+            try (ResultSet maxId = statement.executeQuery("select coalesce(max(id), 0) from expense")) {
+                maxId.next();
+                if (maxId.getLong(1) >= first) {
+                    return;
+                }
+            }
+            String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+            if (product.contains("mysql") || product.contains("mariadb")) {
+                statement.execute("alter table expense auto_increment = " + first);
+            } else if (product.contains("h2")) {
+                statement.execute("alter table expense alter column id restart with " + first);
+            } else {
+                throw new SQLException("Expense ID ranges are not supported on " + product);
+            }
+        }
+    }
+}
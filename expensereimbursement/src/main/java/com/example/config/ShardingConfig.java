@@ -0,0 +1,65 @@
+package com.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "expense.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    /**
+     * Replaces the single spring.datasource with one pool per configured shard behind a routing DataSource.
+     * Open-in-view must be off: it would pin one connection, and so one shard, to the whole request.
+     * @return The routing DataSource used by JPA
+     */
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(ShardingProperties properties,
+                                             @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (openInView) {
+            throw new IllegalStateException("expense.sharding.enabled requires spring.jpa.open-in-view=false.");
+        }
+        List<DataSource> shards = new ArrayList<>();
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .driverClassName(shard.getDriverClassName())
+                    .build();
+            pool.setPoolName("shard-" + shards.size());
+            pool.setMaximumPoolSize(shard.getMaximumPoolSize());
+            shards.add(pool);
+        }
+        return new ShardRoutingDataSource(shards, properties.getIdRangeSize());
+    }
+
+    /**
+     * Registers ShardSchemaIntegrator, which applies ddl-auto to every shard and reserves the expense ID ranges.
+     * @return Customizer adding the integrator to the Hibernate properties
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaCustomizer(ShardRoutingDataSource dataSource) {
+        return properties -> {
+            Object ddlAuto = properties.get(AvailableSettings.HBM2DDL_AUTO);
+            ShardSchemaIntegrator integrator = new ShardSchemaIntegrator(dataSource, ddlAuto != null ? ddlAuto.toString() : null);
+            properties.put(JpaSettings.INTEGRATOR_PROVIDER, (IntegratorProvider) () -> List.of(integrator));
+        };
+    }
+}
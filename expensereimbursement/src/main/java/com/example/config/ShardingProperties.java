@@ -0,0 +1,95 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shard databases for the expense data (expense.sharding.*). When sharding is enabled these replace
+ * spring.datasource.*; every shard holds the full set of reference tables (roles, employees, categories, ...).
+ */
+@ConfigurationProperties(prefix = "expense.sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    // Expense IDs of shard k are allocated from (k * idRangeSize, (k + 1) * idRangeSize]
+    private int idRangeSize = 1 << 28;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    // Getters and Setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getIdRangeSize() {
+        return idRangeSize;
+    }
+
+    public void setIdRangeSize(int idRangeSize) {
+        this.idRangeSize = idRangeSize;
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = 10;
+
+        // Getters and Setters
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getDriverClassName() {
+            return driverClassName;
+        }
+
+        public void setDriverClassName(String driverClassName) {
+            this.driverClassName = driverClassName;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+    }
+}
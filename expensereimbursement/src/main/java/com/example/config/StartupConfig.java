@@ -0,0 +1,22 @@
+package com.example.config;
+
+import com.example.expensereimbursement.controller.ExpenseController;
+import com.example.expensereimbursement.service.ExpenseService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Keeps the beans on the request path eager when lazy initialization is enabled (see application-prod.properties),
+     * so the first request after start-up does not pay for creating the controller, service and repositories.
+     * Everything else (springdoc, SwaggerConfig, ...) is only created when first used.
+     * @return Filter excluding the hot beans from lazy initialization
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter eagerRequestPathBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(ExpenseController.class, ExpenseService.class);
+    }
+}
@@ -4,7 +4,10 @@ import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.OpenAPI;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
+// Only needed when the API docs are requested, so it is not created during start-up
+@Lazy
 @Configuration
 public class SwaggerConfig {
 
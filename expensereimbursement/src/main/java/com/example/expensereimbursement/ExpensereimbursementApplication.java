@@ -2,8 +2,11 @@ package com.example.expensereimbursement;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// Scan com.example so the shared configuration in com.example.config is picked up as well
+@SpringBootApplication(scanBasePackages = "com.example")
+@EnableScheduling
 public class ExpensereimbursementApplication {
 
 	public static void main(String[] args) {
@@ -2,10 +2,24 @@ package com.example.expensereimbursement.controller;
 
 import com.example.expensereimbursement.model.*;
 import com.example.expensereimbursement.service.ExpenseService;
+import com.example.expensereimbursement.service.RoleSpendReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -18,6 +32,10 @@ public class ExpenseController {
     @Autowired
     private ExpenseService expenseService;
 
+    // Serializes the rows of streamed reports
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // Endpoint to get all roles from the service layer
     @GetMapping("/roles")
     public List<Role> getAllRoles() {
@@ -42,10 +60,76 @@ public class ExpenseController {
         return expenseService.getAllExpenseStatuses();  // Fetch all expense statuses using the service
     }
 
-    // Endpoint to get only pending expenses (filtered from all expenses)
+    // Endpoint to get only pending expenses (filtered from all expenses).
+    // fields= limits the response to the listed fields, e.g. /api/expenses?fields=id,amount,category.name,status.name
     @GetMapping("/expenses")
-    public List<Expense> getAllExpenses() {
-        return expenseService.getAllExpenses();  // Fetch all pending expenses using the service
+    public ResponseEntity<?> getAllExpenses(@RequestParam(required = false) String fields) {
+        if (fields == null) {
+            return ResponseEntity.ok(expenseService.getAllExpenses());  // Fetch all pending expenses using the service
+        }
+        try {
+            return ResponseEntity.ok(expenseService.getAllExpenses(fields));  // Only the requested fields
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());  // 400 Bad Request if a field is unknown
+        }
+    }
+
+    // Endpoint streaming expense events (SUBMITTED, APPROVED, REJECTED) as Server-Sent Events.
+    // Browsers resend the Last-Event-ID header on reconnect; other clients can pass lastEventId instead.
+    // A fresh subscription starts with a CONNECTED event whose ID is the one to resume from; subscribe before
+    // loading GET /api/expenses so no event between the two is lost.
+    // A RESET event means the missed events are no longer available and GET /api/expenses must be reloaded.
+    @GetMapping(path = "/expenses/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamExpenseEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        String lastEventId = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        return expenseService.subscribeToExpenseEvents(lastEventId);  // Subscribe, resuming after lastEventId if given
+    }
+
+    // Endpoint to view the head of the approval work queue, e.g. /api/approval-queue?partition=2&limit=20
+    @GetMapping("/approval-queue")
+    public ResponseEntity<?> getApprovalQueue(@RequestParam(required = false) Integer partition,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(expenseService.getApprovalQueue(partition, limit));  // Pending expenses in priority order
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());  // 400 Bad Request if the limit is invalid
+        }
+    }
+
+    // Endpoint to get the number of pending expenses per work queue partition
+    @GetMapping("/approval-queue/partitions")
+    public Map<String, Object> getApprovalQueuePartitions() {
+        return expenseService.getApprovalQueuePartitions();
+    }
+
+    // Endpoint for a manager to claim the top N unclaimed pending expenses
+    @PostMapping("/approval-queue/claim")
+    public ResponseEntity<?> claimApprovalQueueItems(@RequestParam int managerId,
+                                                     @RequestParam(required = false) Integer partition,
+                                                     @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<ApprovalQueueItem> claimed = expenseService.claimApprovalQueueItems(managerId, partition, limit);
+
+            // If there is nothing left to claim, return a 204 No Content response
+            if (claimed.isEmpty()) {
+                return ResponseEntity.noContent().build();  // 204 No Content
+            }
+            return ResponseEntity.ok(claimed);  // Return 200 OK with the claimed items
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());  // 400 Bad Request if the manager or limit is invalid
+        }
+    }
+
+    // Endpoint for a manager to give up a claim without deciding the expense
+    @PostMapping("/approval-queue/{expenseId}/release")
+    public ResponseEntity<String> releaseApprovalQueueItem(@PathVariable int expenseId, @RequestParam int managerId) {
+        String result = expenseService.releaseApprovalQueueItem(expenseId, managerId);  // Call the service to release the claim
+        if (result.startsWith("Error:")) {
+            return ResponseEntity.badRequest().body(result);  // 400 Bad Request if the manager holds no claim
+        }
+        return ResponseEntity.ok(result);  // Return 200 OK with the success message
     }
 
     // Endpoint to add a new expense
@@ -59,21 +143,132 @@ public class ExpenseController {
     }
 
     // Endpoint to update the status of an existing expense (using PATCH)
+    // A manager deciding an expense claimed from the approval work queue passes managerId
     @PatchMapping("/expenses/{expenseId}/status")
-    public ResponseEntity<String> updateExpenseStatus(@PathVariable int expenseId, @RequestParam int statusId) {
-        String result = expenseService.updateExpenseStatus(expenseId, statusId);  // Call the service to update the status of an expense
+    public ResponseEntity<String> updateExpenseStatus(@PathVariable int expenseId, @RequestParam int statusId,
+                                                      @RequestParam(required = false) Integer managerId) {
+        String result = expenseService.updateExpenseStatus(expenseId, statusId, managerId);  // Call the service to update the status of an expense
         if (result.startsWith("Error:")) {
             return ResponseEntity.badRequest().body(result);  // Return 400 Bad Request with the error message if any
         }
         return ResponseEntity.ok(result);  // Return 200 OK with the success message if successful
     }
 
+    // Endpoint to replay the submission and status transitions of an expense from the audit journal
+    @GetMapping("/expenses/{expenseId}/audit-trail")
+    public ResponseEntity<List<ExpenseAuditRecord>> getExpenseAuditTrail(@PathVariable int expenseId) {
+        List<ExpenseAuditRecord> records = expenseService.getExpenseAuditTrail(expenseId);  // Fetch the journaled history
+
+        // If nothing was journaled for this expense, return a 204 No Content response
+        if (records.isEmpty()) {
+            return ResponseEntity.noContent().build();  // 204 No Content
+        }
+        return ResponseEntity.ok(records);  // Return 200 OK with the history
+    }
+
+    // Endpoint to upload a receipt for an expense; the request body is the raw file content, e.g.
+    // POST /api/expenses/5/receipts?fileName=invoice.pdf with Content-Type: application/pdf
+    @PostMapping("/expenses/{expenseId}/receipts")
+    public ResponseEntity<?> uploadReceipt(@PathVariable int expenseId, @RequestParam String fileName,
+                                           HttpServletRequest request) throws IOException {
+        try {
+            // Stream the body straight into the receipt store
+            Receipt receipt = expenseService.addReceipt(expenseId, fileName, request.getContentType(), request.getInputStream());
+            return ResponseEntity.ok(receipt);  // Return 200 OK with the receipt metadata
+        } catch (IllegalArgumentException e) {
+            // Return 400 Bad Request if the expense does not exist or the file is empty or too large
+            return ResponseEntity.badRequest().body(e.getMessage());  // 400 Bad Request
+        }
+    }
+
+    // Endpoint to list the receipts attached to an expense
+    @GetMapping("/expenses/{expenseId}/receipts")
+    public ResponseEntity<?> getReceipts(@PathVariable int expenseId) {
+        try {
+            List<Receipt> receipts = expenseService.getReceipts(expenseId);  // Fetch the receipt metadata
+
+            // If the expense has no receipts, return a 204 No Content response
+            if (receipts.isEmpty()) {
+                return ResponseEntity.noContent().build();  // 204 No Content
+            }
+            return ResponseEntity.ok(receipts);  // Return 200 OK with the receipts
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());  // 400 Bad Request if the expense does not exist
+        }
+    }
+
+    // Endpoint to download a receipt; supports single byte-range requests (Range: bytes=start-end)
+    @GetMapping("/expenses/{expenseId}/receipts/{receiptId}")
+    public void downloadReceipt(@PathVariable int expenseId, @PathVariable int receiptId,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Receipt receipt;
+        try {
+            receipt = expenseService.getReceipt(expenseId, receiptId);  // Fetch the receipt metadata
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());  // 404 Not Found
+            return;
+        }
+
+        long size = receipt.getSize();
+        long start = 0;
+        long end = size - 1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, "\"" + receipt.getContentHash() + "\"");  // Content-addressed, so the hash is a strong ETag
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() != 1) {
+                    throw new IllegalArgumentException("Only a single range is supported.");
+                }
+                start = ranges.get(0).getRangeStart(size);
+                end = ranges.get(0).getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());  // 416 Range Not Satisfiable
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());  // 206 Partial Content
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+
+        long length = end - start + 1;
+        response.setContentType(receipt.getContentType() != null ? receipt.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(receipt.getFileName(), StandardCharsets.UTF_8).build().toString());
+
+        // Let Tomcat send the file with sendfile() when the connector supports it (zero-copy)
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", expenseService.getReceiptPath(receipt).toRealPath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", start);
+            request.setAttribute("org.apache.tomcat.sendfile.end", end + 1);  // Exclusive
+            return;
+        }
+        // Otherwise hand the range to FileChannel.transferTo
+        expenseService.transferReceipt(receipt, start, length, Channels.newChannel(response.getOutputStream()));
+    }
+
+    // Endpoint to get the rules and throughput of the scheduled auto-approval job
+    @GetMapping("/expenses/auto-approval/stats")
+    public Map<String, Object> getAutoApprovalStatistics() {
+        return expenseService.getAutoApprovalStatistics();  // Fetch run statistics from the service
+    }
+
+    // Endpoint to get the backlog, lag and throughput of the payroll outbox dispatcher
+    @GetMapping("/payroll/outbox-stats")
+    public Map<String, Object> getPayrollOutboxStatistics() {
+        return expenseService.getPayrollOutboxStatistics();  // Fetch dispatcher statistics from the service
+    }
+
     // New endpoint to get expenses by employee ID and a specified date range
     @GetMapping("/expenses/employee/{employeeId}")
-    public ResponseEntity<List<Expense>> getExpensesByEmployeeAndDateRange(
+    public ResponseEntity<?> getExpensesByEmployeeAndDateRange(
             @PathVariable int employeeId,
             @RequestParam String startDate,
-            @RequestParam String endDate) {
+            @RequestParam String endDate,
+            @RequestParam(required = false) String fields) {
 
         // Trim any leading/trailing spaces from the date parameters
         startDate = startDate.trim();
@@ -83,8 +278,15 @@ public class ExpenseController {
         LocalDate start = LocalDate.parse(startDate);  // Convert the start date string to LocalDate
         LocalDate end = LocalDate.parse(endDate);      // Convert the end date string to LocalDate
 
-        // Call the service method to get expenses for the employee within the date range
-        List<Expense> expenses = expenseService.getExpensesByEmployeeAndDateRange(employeeId, start, end);
+        // Call the service method to get expenses (or only the requested fields) for the employee within the date range
+        List<?> expenses;
+        try {
+            expenses = fields == null
+                    ? expenseService.getExpensesByEmployeeAndDateRange(employeeId, start, end)
+                    : expenseService.getExpensesByEmployeeAndDateRange(employeeId, start, end, fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());  // 400 Bad Request if a field is unknown
+        }
 
         // If no expenses are found, return a 204 No Content response
         if (expenses.isEmpty()) {
@@ -96,11 +298,14 @@ public class ExpenseController {
     @GetMapping("/expenses/history")
     public ResponseEntity<?> getExpenseHistoryByStatusAndCategory(
             @RequestParam int statusId,
-            @RequestParam(required = false) String categoryName) {
+            @RequestParam(required = false) String categoryName,
+            @RequestParam(required = false) String fields) {
 
         try {
-            // Call the service to fetch expenses by statusId and categoryName
-            List<Expense> expenses = expenseService.getExpensesByStatusAndCategory(statusId, categoryName);
+            // Call the service to fetch expenses (or only the requested fields) by statusId and categoryName
+            List<?> expenses = fields == null
+                    ? expenseService.getExpensesByStatusAndCategory(statusId, categoryName)
+                    : expenseService.getExpensesByStatusAndCategory(statusId, categoryName, fields);
 
             // If no expenses are found, return a 204 No Content response
             if (expenses.isEmpty()) {
@@ -109,12 +314,50 @@ public class ExpenseController {
 
             return ResponseEntity.ok(expenses);  // Return 200 OK with the list of expenses
         } catch (IllegalArgumentException e) {
-            // Return 400 Bad Request if the status ID is invalid or category is not found
+            // Return 400 Bad Request if the status ID is invalid, category is not found or a field is unknown
             return ResponseEntity.badRequest().body(e.getMessage());  // 400 Bad Request
         }
     }
 
+    // Endpoint to get the statistics of the status/category history cache
+    @GetMapping("/expenses/history/cache-stats")
+    public Map<String, Object> getHistoryCacheStatistics() {
+        return expenseService.getHistoryCacheStatistics();  // Fetch hit/miss/eviction counts from the service
+    }
+
+    // Endpoint to get how current this instance's copies of roles, categories and packages are
+    @GetMapping("/reference-data/coherence-stats")
+    public Map<String, Object> getReferenceDataCoherenceStatistics() {
+        return expenseService.getReferenceDataCoherenceStatistics();  // Fetch poll counts and versions from the service
+    }
 
+    // Endpoint to search expense descriptions by keyword, e.g. /api/expenses/search?q=conference&statusId=2
+    @GetMapping("/expenses/search")
+    public ResponseEntity<?> searchExpenses(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer statusId,
+            @RequestParam(required = false) String categoryName,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        // The index is built in the background after start-up
+        if (!expenseService.isSearchIndexReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error: The search index is still being built.");
+        }
+
+        try {
+            LocalDate start = startDate != null ? LocalDate.parse(startDate.trim()) : null;
+            LocalDate end = endDate != null ? LocalDate.parse(endDate.trim()) : null;
+
+            // Call the service to fetch the ranked IDs of the matching expenses
+            List<Integer> expenseIds = expenseService.searchExpenses(q, statusId, categoryName, start, end, limit);
+            return ResponseEntity.ok(expenseIds);  // Return 200 OK with the ranked expense IDs
+        } catch (IllegalArgumentException e) {
+            // Return 400 Bad Request if the query, category or limit is invalid
+            return ResponseEntity.badRequest().body(e.getMessage());  // 400 Bad Request
+        }
+    }
 
     // Endpoint to get all category packages available in the system
     @GetMapping("/category-packages")
@@ -155,6 +398,49 @@ public class ExpenseController {
         }
     }
 
+    // Endpoint to validate all line items of a claim in one call; returns a result with a reason per item
+    @PostMapping("/expenses/validate/batch")
+    public ResponseEntity<?> validateExpenses(@RequestBody List<ExpenseValidationRequest> requests) {
+        try {
+            // Call the service to validate every item against the role/category package limits
+            List<ExpenseValidationResult> results = expenseService.validateExpenses(requests);
+            return ResponseEntity.ok(results);  // Return 200 OK with the per-item results
+        } catch (IllegalArgumentException e) {
+            // Return 400 Bad Request if the batch is empty
+            return ResponseEntity.badRequest().body(e.getMessage());  // 400 Bad Request
+        }
+    }
+
+    // Endpoint to stream every employee's usage of each package for one role (or all roles), one JSON line per
+    // employee, e.g. /api/reports/role-spend?roleId=3
+    // Unlike /employee-history-by-category, usage leaves out rejected expenses, and a category with spend but no
+    // package for the role is listed with expenseLimit null and exceeded true instead of being left out
+    @GetMapping("/reports/role-spend")
+    public ResponseEntity<StreamingResponseBody> getRoleSpendReport(@RequestParam(required = false) Integer roleId) {
+        RoleSpendReport.Report report;
+        try {
+            report = expenseService.prepareRoleSpendReport(roleId);  // Run the queries before the response starts
+        } catch (IllegalArgumentException e) {
+            // Return 400 Bad Request if the role does not exist or is not active
+            byte[] message = e.getMessage().getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(out -> out.write(message));  // 400 Bad Request
+        }
+
+        StreamingResponseBody body = out -> report.writeTo(rows -> {
+            for (Map<String, Object> row : rows) {
+                out.write(objectMapper.writeValueAsBytes(row));
+                out.write('\n');
+            }
+            out.flush();  // Send each chunk as soon as it is built
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header("X-Employee-Count", String.valueOf(report.getEmployeeCount()))
+                .body(body);
+    }
+
     // New endpoint to fetch an employee's expense history categorized by expense type
     @GetMapping("/employee-history-by-category/{employeeId}")
     public ResponseEntity<Map<String, Object>> getEmployeeExpenseHistoryByCategory(@PathVariable int employeeId) {
@@ -0,0 +1,54 @@
+package com.example.expensereimbursement.controller;
+
+import com.example.expensereimbursement.model.Expense;
+import com.example.expensereimbursement.service.ReactiveExpenseReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+// Non-blocking variants of the long-running read endpoints of ExpenseController.
+// Results are streamed as newline-delimited JSON (one expense per line) while the rows are read; the request
+// thread is released as soon as the query starts and the next row is only requested once the previous one
+// has been written to the client.
+// Only available without sharding: the reactive read path reads the single database of expense.reactive.url.
+@RestController
+@ConditionalOnProperty(name = "expense.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequestMapping("/api/reactive")
+public class ReactiveExpenseController {
+
+    @Autowired
+    private ReactiveExpenseReader reactiveExpenseReader;
+
+    // Endpoint to stream expenses by status and optional category name, newest first
+    @GetMapping(path = "/expenses/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Expense> getExpenseHistoryByStatusAndCategory(
+            @RequestParam int statusId,
+            @RequestParam(required = false) String categoryName) {
+        return reactiveExpenseReader.findByStatusAndCategory(statusId, categoryName);
+    }
+
+    // Endpoint to stream an employee's expenses within a date range
+    @GetMapping(path = "/expenses/employee/{employeeId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Expense> getExpensesByEmployeeAndDateRange(
+            @PathVariable int employeeId,
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+
+        // Parse the trimmed start and end dates to LocalDate objects
+        LocalDate start = LocalDate.parse(startDate.trim());
+        LocalDate end = LocalDate.parse(endDate.trim());
+
+        return reactiveExpenseReader.findByEmployeeAndDateRange(employeeId, start, end);
+    }
+
+    // The stream fails before its first row if the status ID is invalid or the category is not found
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());  // 400 Bad Request
+    }
+}
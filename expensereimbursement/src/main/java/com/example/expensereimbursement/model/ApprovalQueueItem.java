@@ -0,0 +1,108 @@
+package com.example.expensereimbursement.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * A pending expense as shown in a manager's approval work queue.
+ */
+public class ApprovalQueueItem {
+    private int expenseId;
+    private int employeeId;
+    private int roleId;
+    private int categoryId;
+    private int amount;
+    private LocalDateTime submitDate;
+    private boolean overLimit;         // Amount exceeds the package limit of the employee's role for the category
+    private Integer claimedBy;         // Manager holding the lease, null if unclaimed
+    private Instant leaseExpiresAt;
+
+    public ApprovalQueueItem() {
+    }
+
+    public ApprovalQueueItem(int expenseId, int employeeId, int roleId, int categoryId, int amount,
+                             LocalDateTime submitDate, boolean overLimit, Integer claimedBy, Instant leaseExpiresAt) {
+        this.expenseId = expenseId;
+        this.employeeId = employeeId;
+        this.roleId = roleId;
+        this.categoryId = categoryId;
+        this.amount = amount;
+        this.submitDate = submitDate;
+        this.overLimit = overLimit;
+        this.claimedBy = claimedBy;
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    // Getters and Setters
+    public int getExpenseId() {
+        return expenseId;
+    }
+
+    public void setExpenseId(int expenseId) {
+        this.expenseId = expenseId;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(int employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public int getRoleId() {
+        return roleId;
+    }
+
+    public void setRoleId(int roleId) {
+        this.roleId = roleId;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    public LocalDateTime getSubmitDate() {
+        return submitDate;
+    }
+
+    public void setSubmitDate(LocalDateTime submitDate) {
+        this.submitDate = submitDate;
+    }
+
+    public boolean isOverLimit() {
+        return overLimit;
+    }
+
+    public void setOverLimit(boolean overLimit) {
+        this.overLimit = overLimit;
+    }
+
+    public Integer getClaimedBy() {
+        return claimedBy;
+    }
+
+    public void setClaimedBy(Integer claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    public Instant getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(Instant leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+}
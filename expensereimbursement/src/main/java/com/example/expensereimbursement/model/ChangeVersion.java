@@ -0,0 +1,42 @@
+package com.example.expensereimbursement.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Version counter of one kind of reference data (roles, categories, ...), bumped in the same transaction as
+ * every write to it. Instances poll this table to find out which of their in-process copies are stale.
+ */
+@Entity
+@Table(name = "change_version")
+public class ChangeVersion {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    private long version;
+
+    public ChangeVersion() {
+    }
+
+    public ChangeVersion(String name, long version) {
+        this.name = name;
+        this.version = version;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.expensereimbursement.model;
 import jakarta.persistence.*;
 
 @Entity
+@EntityListeners(ReferenceDataChangeListener.class)  // Bumps change_version on every write
 public class Employee {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
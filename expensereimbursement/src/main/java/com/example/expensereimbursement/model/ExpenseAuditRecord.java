@@ -0,0 +1,107 @@
+package com.example.expensereimbursement.model;
+
+import java.time.Instant;
+
+/**
+ * One entry of the expense audit journal: a submission or a status transition.
+ */
+public class ExpenseAuditRecord {
+    private long sequence;
+    private Instant recordedAt;
+    private ExpenseEvent.Type type;
+    private int expenseId;
+    private int employeeId;
+    private int actorId; // ExpenseEvent.SYSTEM_ACTOR for automatic decisions, UNKNOWN_ACTOR if not named
+    private int amount;
+    private int fromStatusId; // 0 for a submission
+    private int toStatusId;
+
+    public ExpenseAuditRecord() {
+    }
+
+    public ExpenseAuditRecord(long sequence, Instant recordedAt, ExpenseEvent.Type type, int expenseId,
+                              int employeeId, int actorId, int amount, int fromStatusId, int toStatusId) {
+        this.sequence = sequence;
+        this.recordedAt = recordedAt;
+        this.type = type;
+        this.expenseId = expenseId;
+        this.employeeId = employeeId;
+        this.actorId = actorId;
+        this.amount = amount;
+        this.fromStatusId = fromStatusId;
+        this.toStatusId = toStatusId;
+    }
+
+    // Getters and Setters
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Instant getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(Instant recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
+    public ExpenseEvent.Type getType() {
+        return type;
+    }
+
+    public void setType(ExpenseEvent.Type type) {
+        this.type = type;
+    }
+
+    public int getExpenseId() {
+        return expenseId;
+    }
+
+    public void setExpenseId(int expenseId) {
+        this.expenseId = expenseId;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(int employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public int getActorId() {
+        return actorId;
+    }
+
+    public void setActorId(int actorId) {
+        this.actorId = actorId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    public int getFromStatusId() {
+        return fromStatusId;
+    }
+
+    public void setFromStatusId(int fromStatusId) {
+        this.fromStatusId = fromStatusId;
+    }
+
+    public int getToStatusId() {
+        return toStatusId;
+    }
+
+    public void setToStatusId(int toStatusId) {
+        this.toStatusId = toStatusId;
+    }
+}
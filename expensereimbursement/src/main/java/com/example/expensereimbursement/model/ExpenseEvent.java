@@ -0,0 +1,105 @@
+package com.example.expensereimbursement.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by ExpenseService after an expense has been submitted or its status has changed.
+ */
+public class ExpenseEvent {
+
+    public enum Type {
+        SUBMITTED, APPROVED, REJECTED
+    }
+
+    // Actor IDs that are not employees: a decision taken by the system (auto-approval), or by an unnamed manager
+    public static final int SYSTEM_ACTOR = -1;
+    public static final int UNKNOWN_ACTOR = 0;
+
+    private final Type type;
+    private final int expenseId;
+    private final int employeeId;
+    private final int roleId;
+    private final int categoryId;
+    private final String categoryName;
+    private final int amount;
+    private final String description;
+    private final int previousStatusId; // 0 for a new submission
+    private final int statusId;
+    private final int actorId; // The employee who made the change, or SYSTEM_ACTOR / UNKNOWN_ACTOR
+    private final LocalDateTime submitDate;
+    private final LocalDateTime occurredAt;
+
+    // A submission is made by the expense's employee; the actor of a status change is not known
+    public ExpenseEvent(Type type, Expense expense, int previousStatusId) {
+        this(type, expense, previousStatusId, type == Type.SUBMITTED ? expense.getEmployee().getId() : UNKNOWN_ACTOR);
+    }
+
+    public ExpenseEvent(Type type, Expense expense, int previousStatusId, int actorId) {
+        this.type = type;
+        this.expenseId = expense.getId();
+        this.employeeId = expense.getEmployee().getId();
+        this.roleId = expense.getEmployee().getRole() != null ? expense.getEmployee().getRole().getId() : 0;
+        this.categoryId = expense.getCategory().getId();
+        this.categoryName = expense.getCategory().getName();
+        this.amount = expense.getAmount();
+        this.description = expense.getDescription();
+        this.previousStatusId = previousStatusId;
+        this.statusId = expense.getStatus().getId();
+        this.actorId = actorId;
+        this.submitDate = expense.getSubmitDate();
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public Type getType() {
+        return type;
+    }
+
+    public int getExpenseId() {
+        return expenseId;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public int getRoleId() {
+        return roleId;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getPreviousStatusId() {
+        return previousStatusId;
+    }
+
+    public int getStatusId() {
+        return statusId;
+    }
+
+    public int getActorId() {
+        return actorId;
+    }
+
+    public LocalDateTime getSubmitDate() {
+        return submitDate;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
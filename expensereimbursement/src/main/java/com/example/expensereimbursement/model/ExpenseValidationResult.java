@@ -0,0 +1,50 @@
+package com.example.expensereimbursement.model;
+
+public class ExpenseValidationResult {
+    private int index;            // Position of the item in the batch request
+    private boolean valid;
+    private String reason;        // Why the item is invalid, null when valid
+    private Integer expenseLimit; // Limit of the role's category package, null if it could not be determined
+
+    public ExpenseValidationResult() {
+    }
+
+    public ExpenseValidationResult(int index, boolean valid, String reason, Integer expenseLimit) {
+        this.index = index;
+        this.valid = valid;
+        this.reason = reason;
+        this.expenseLimit = expenseLimit;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void setValid(boolean valid) {
+        this.valid = valid;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public Integer getExpenseLimit() {
+        return expenseLimit;
+    }
+
+    public void setExpenseLimit(Integer expenseLimit) {
+        this.expenseLimit = expenseLimit;
+    }
+}
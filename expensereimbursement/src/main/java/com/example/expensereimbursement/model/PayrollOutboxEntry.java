@@ -0,0 +1,177 @@
+package com.example.expensereimbursement.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * An approved expense waiting to be sent to payroll.
+ * The row is written in the same transaction as the approval and holds a snapshot of what payroll needs, so the
+ * dispatcher never has to read the expense again. It is kept after delivery (dispatchedAt set) as a record.
+ */
+@Entity
+@Table(name = "payroll_outbox", indexes = @Index(name = "idx_payroll_outbox_pending", columnList = "dispatched_at, id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_payroll_outbox_expense", columnNames = "expense_id"))
+public class PayrollOutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    // Derived from the expense ID, which is unique across shards: the same approval always gets the same message ID,
+    // and payroll uses it to drop redelivered messages
+    @Column(name = "message_id", length = 36)
+    private String messageId;
+
+    // An expense is approved at most once, so it has at most one entry
+    @Column(name = "expense_id")
+    private int expenseId;
+
+    @Column(name = "employee_id")
+    private int employeeId;
+
+    @Column(name = "category_id")
+    private int categoryId;
+
+    private int amount;
+
+    @Column(name = "approval_date")
+    private LocalDateTime approvalDate;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // Delivery bookkeeping
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "dispatched_at")
+    private LocalDateTime dispatchedAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    // Set when the entry has used up its attempts; it is no longer sent and no longer holds back the employee's
+    // later entries. Clearing it (and next_attempt_at) puts the entry back in the queue
+    @Column(name = "parked_at")
+    private LocalDateTime parkedAt;
+
+    public PayrollOutboxEntry() {
+    }
+
+    public PayrollOutboxEntry(Expense expense) {
+        this.messageId = "expense-" + expense.getId();
+        this.expenseId = expense.getId();
+        this.employeeId = expense.getEmployee().getId();
+        this.categoryId = expense.getCategory() != null ? expense.getCategory().getId() : 0;
+        this.amount = expense.getAmount();
+        this.approvalDate = expense.getApprovalDate();
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    // Getters and Setters
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    public int getExpenseId() {
+        return expenseId;
+    }
+
+    public void setExpenseId(int expenseId) {
+        this.expenseId = expenseId;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(int employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    public LocalDateTime getApprovalDate() {
+        return approvalDate;
+    }
+
+    public void setApprovalDate(LocalDateTime approvalDate) {
+        this.approvalDate = approvalDate;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getDispatchedAt() {
+        return dispatchedAt;
+    }
+
+    public void setDispatchedAt(LocalDateTime dispatchedAt) {
+        this.dispatchedAt = dispatchedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getParkedAt() {
+        return parkedAt;
+    }
+
+    public void setParkedAt(LocalDateTime parkedAt) {
+        this.parkedAt = parkedAt;
+    }
+}
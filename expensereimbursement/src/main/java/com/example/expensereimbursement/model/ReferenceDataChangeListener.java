@@ -0,0 +1,91 @@
+package com.example.expensereimbursement.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * JPA entity listener on the reference data entities.
+ * A write bumps the entity's change_version row through the transaction's own JDBC connection, so the bump
+ * commits or rolls back with the change. Each row is bumped once per transaction, and after the commit a local
+ * ReferenceDataChangedEvent is published so this instance does not wait for its own poll.
+ */
+@Component
+public class ReferenceDataChangeListener {
+
+    private static final String BUMP = "update change_version set version = version + 1 where name = ?";
+
+    private static final String INSERT = "insert into change_version (name, version) values (?, 1)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Object entity) {
+        String name = nameOf(entity);
+        if (name == null) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(name);
+            eventPublisher.publishEvent(new ReferenceDataChangedEvent(Set.of(name)));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> changed = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            Set<String> names = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, names);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ReferenceDataChangeListener.this);
+                    if (status == STATUS_COMMITTED) {
+                        eventPublisher.publishEvent(new ReferenceDataChangedEvent(names));
+                    }
+                }
+            });
+            changed = names;
+        }
+        if (changed.add(name)) {
+            bump(name);
+        }
+    }
+
+    private void bump(String name) {
+        if (jdbcTemplate.update(BUMP, name) == 0) {
+            jdbcTemplate.update(INSERT, name);
+        }
+    }
+
+    private static String nameOf(Object entity) {
+        if (entity instanceof Role) {
+            return ReferenceDataChangedEvent.ROLE;
+        } else if (entity instanceof Employee) {
+            return ReferenceDataChangedEvent.EMPLOYEE;
+        } else if (entity instanceof Category) {
+            return ReferenceDataChangedEvent.CATEGORY;
+        } else if (entity instanceof CategoryPackage) {
+            return ReferenceDataChangedEvent.CATEGORY_PACKAGE;
+        } else if (entity instanceof RoleCategoryPackage) {
+            return ReferenceDataChangedEvent.ROLE_CATEGORY_PACKAGE;
+        }
+        return null;
+    }
+}
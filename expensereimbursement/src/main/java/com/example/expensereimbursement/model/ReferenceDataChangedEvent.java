@@ -0,0 +1,42 @@
+package com.example.expensereimbursement.model;
+
+import java.util.Set;
+
+/**
+ * Published when reference data has changed, either by this instance (after the commit) or by another instance
+ * (when ReferenceDataCoherence sees the change_version row move). Listeners drop what they derived from it.
+ */
+public class ReferenceDataChangedEvent {
+
+    // change_version names, one per kind of reference data
+    public static final String ROLE = "role";
+    public static final String EMPLOYEE = "employee";
+    public static final String CATEGORY = "category";
+    public static final String CATEGORY_PACKAGE = "category_package";
+    public static final String ROLE_CATEGORY_PACKAGE = "role_category_package";
+
+    public static final Set<String> ALL = Set.of(ROLE, EMPLOYEE, CATEGORY, CATEGORY_PACKAGE, ROLE_CATEGORY_PACKAGE);
+
+    private final Set<String> changed;
+
+    public ReferenceDataChangedEvent(Set<String> changed) {
+        this.changed = Set.copyOf(changed);
+    }
+
+    /**
+     * @param names change_version names
+     * @return true if any of them changed
+     */
+    public boolean affects(String... names) {
+        for (String name : names) {
+            if (changed.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Set<String> getChanged() {
+        return changed;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.expensereimbursement.repository;
+
+import com.example.expensereimbursement.model.ChangeVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ChangeVersionRepository extends JpaRepository<ChangeVersion, String> {
+}
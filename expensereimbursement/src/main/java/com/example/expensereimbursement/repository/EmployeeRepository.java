@@ -2,6 +2,16 @@ package com.example.expensereimbursement.repository;
 
 import com.example.expensereimbursement.model.Employee;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface EmployeeRepository extends JpaRepository<Employee, Integer> {
+
+    // Report rows (id, name, roleId, roleName) of the employees of one active role, or of all active roles if
+    // roleId is null, in ID order
+    @Query("select e.id, e.name, r.id, r.name from Employee e join e.role r " +
+            "where r.status = true and (:roleId is null or r.id = :roleId) order by e.id")
+    List<Object[]> findReportRowsByRoleId(@Param("roleId") Integer roleId);
 }
@@ -4,9 +4,14 @@ import com.example.expensereimbursement.model.Category;
 import com.example.expensereimbursement.model.Employee;
 import com.example.expensereimbursement.model.Expense;
 import com.example.expensereimbursement.model.ExpenseStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface ExpenseRepository extends JpaRepository<Expense, Integer> {
@@ -26,5 +31,48 @@ public interface ExpenseRepository extends JpaRepository<Expense, Integer> {
     // Find expenses by status and category, ordered by submitDate descending
     List<Expense> findByStatusAndCategoryOrderBySubmitDateDesc(ExpenseStatus status, Category category);
 
+    // Highest expense ID, used to split the table into ID ranges for parallel loading
+    @Query("select coalesce(max(e.id), 0) from Expense e")
+    int findMaxId();
 
-}
\ No newline at end of file
+    // Search index rows (id, description, statusId, categoryId, submitDate) for expenses with fromId < id <= toId
+    @Query("select e.id, e.description, s.id, c.id, e.submitDate from Expense e " +
+            "left join e.status s left join e.category c where e.id > :fromId and e.id <= :toId")
+    List<Object[]> findSearchRowsByIdRange(@Param("fromId") int fromId, @Param("toId") int toId);
+
+    // Work queue rows (id, employeeId, roleId, categoryId, amount, submitDate) of all expenses with the given status
+    @Query("select e.id, emp.id, r.id, c.id, e.amount, e.submitDate from Expense e " +
+            "join e.employee emp left join emp.role r join e.category c where e.status.id = :statusId")
+    List<Object[]> findQueueRowsByStatusId(@Param("statusId") int statusId);
+
+    // IDs of expenses with the given status after afterId, in ID order (keyset pagination)
+    @Query("select e.id from Expense e where e.status.id = :statusId and e.id > :afterId order by e.id")
+    List<Integer> findIdsByStatusIdAfter(@Param("statusId") int statusId, @Param("afterId") int afterId, Pageable pageable);
+
+    // Locks the given expenses that still have the status, skipping rows locked by other transactions
+    // (e.g. a manager's updateExpenseStatus) instead of waiting for them
+    @Query(value = "select id from expense where id in (:ids) and status_id = :statusId for update skip locked", nativeQuery = true)
+    List<Integer> lockIdsWithStatus(@Param("ids") Collection<Integer> ids, @Param("statusId") int statusId);
+
+    // Spend rows (employeeId, categoryId, statusId, total amount) of the employees of one role, or of all roles if
+    // roleId is null, leaving out expenses with the excluded status
+    @Query("select emp.id, e.category.id, e.status.id, sum(e.amount) from Expense e join e.employee emp " +
+            "where (:roleId is null or emp.role.id = :roleId) and e.status.id <> :excludedStatusId " +
+            "group by emp.id, e.category.id, e.status.id")
+    List<Object[]> sumAmountsByEmployeeCategoryAndStatus(@Param("roleId") Integer roleId,
+                                                          @Param("excludedStatusId") int excludedStatusId);
+
+    // Sets the status and approval date of many expenses in a single statement
+    @Modifying
+    @Query("update Expense e set e.status = :status, e.approvalDate = :approvalDate where e.id in :ids")
+    int updateStatusByIds(@Param("ids") Collection<Integer> ids, @Param("status") ExpenseStatus status,
+                          @Param("approvalDate") LocalDateTime approvalDate);
+
+    // Sets the status and approval date of one expense only if it still has the expected status, so two concurrent
+    // decisions (or a decision and the auto-approval job) cannot both apply; returns the number of rows changed
+    @Modifying
+    @Query("update Expense e set e.status = :status, e.approvalDate = :approvalDate where e.id = :id and e.status.id = :expectedStatusId")
+    int updateStatusIfCurrent(@Param("id") int id, @Param("expectedStatusId") int expectedStatusId,
+                              @Param("status") ExpenseStatus status, @Param("approvalDate") LocalDateTime approvalDate);
+
+}
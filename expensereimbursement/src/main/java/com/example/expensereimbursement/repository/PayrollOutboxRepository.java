@@ -0,0 +1,35 @@
+package com.example.expensereimbursement.repository;
+
+import com.example.expensereimbursement.model.PayrollOutboxEntry;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PayrollOutboxRepository extends JpaRepository<PayrollOutboxEntry, Long> {
+
+    // Locks the oldest undelivered entries that are due, leaving out every entry of an employee who has an entry
+    // backing off or in flight, so those are not sent ahead of it; a dispatcher on another instance waits for the
+    // lock instead of sending them too. Parked entries are neither due nor hold anything back
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from PayrollOutboxEntry o where o.dispatchedAt is null and o.parkedAt is null " +
+            "and (o.nextAttemptAt is null or o.nextAttemptAt <= :now) " +
+            "and o.employeeId not in (select b.employeeId from PayrollOutboxEntry b " +
+            "where b.dispatchedAt is null and b.parkedAt is null and b.nextAttemptAt > :now) order by o.id")
+    List<PayrollOutboxEntry> lockDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Count the entries still to be delivered
+    long countByDispatchedAtIsNullAndParkedAtIsNull();
+
+    // Count the entries that used up their attempts
+    long countByParkedAtIsNotNull();
+
+    // Creation time of the oldest entry still to be delivered, or null if there is none
+    @Query("select min(o.createdAt) from PayrollOutboxEntry o where o.dispatchedAt is null and o.parkedAt is null")
+    LocalDateTime findOldestUndispatchedCreatedAt();
+}
@@ -0,0 +1,13 @@
+package com.example.expensereimbursement.repository;
+
+import com.example.expensereimbursement.model.Expense;
+import com.example.expensereimbursement.model.Receipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ReceiptRepository extends JpaRepository<Receipt, Integer> {
+
+    // Find the receipts attached to an expense, oldest first
+    List<Receipt> findByExpenseOrderByUploadDateAsc(Expense expense);
+}
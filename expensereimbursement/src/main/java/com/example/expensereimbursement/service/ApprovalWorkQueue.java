@@ -0,0 +1,382 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.ApprovalQueueItem;
+import com.example.expensereimbursement.model.ExpenseEvent;
+import com.example.expensereimbursement.model.ReferenceDataChangedEvent;
+import com.example.expensereimbursement.repository.ExpenseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Server-side priority index of pending expenses for managers.
+ * Pending expenses are kept in concurrent sorted sets, one per partition (role or category), ordered by the
+ * configured keys. Managers claim the top N unclaimed items and hold a lease on them, so two managers are never
+ * handed the same claim; a lease ends when the expense is decided, when it is released, or when it expires.
+ * While a lease is active only its holder may decide the expense (see beginDecision).
+ * The queue and its leases live in this instance's memory: with several instances, managers must be routed to the
+ * same one (e.g. sticky sessions) or the queue endpoints served by a single instance, because a lease granted by
+ * one instance is not seen by the others.
+ * The index is rebuilt from the expense table at start-up and kept current by ExpenseEvents; the over-limit
+ * flags are recomputed when limits change.
+ */
+@Component
+public class ApprovalWorkQueue {
+
+    private static final int PENDING_STATUS_ID = 1;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpensePolicyMatrix expensePolicyMatrix;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private final Comparator<Entry> order;
+
+    private final String partitionBy;
+
+    private final Duration leaseDuration;
+
+    private final Map<Integer, NavigableSet<Entry>> partitions = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Lease> leases = new ConcurrentHashMap<>();
+
+    // Expenses being decided, with the number of decisions in progress; they cannot be claimed. Guarded by leases
+    private final Map<Integer, Integer> deciding = new HashMap<>();
+
+    // Expenses decided while the start-up rebuild was running; the rebuild must not re-add them
+    private final Set<Integer> decidedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean rebuilding;
+
+    public ApprovalWorkQueue(@Value("${expense.work-queue.order:overLimit,age,amount}") List<String> orderKeys,
+                             @Value("${expense.work-queue.partition-by:category}") String partitionBy,
+                             @Value("${expense.work-queue.lease-seconds:900}") long leaseSeconds) {
+        this.order = comparator(orderKeys);
+        this.partitionBy = partitionBy.trim().toLowerCase(Locale.ROOT);
+        this.leaseDuration = Duration.ofSeconds(leaseSeconds);
+        if (!this.partitionBy.equals("category") && !this.partitionBy.equals("role") && !this.partitionBy.equals("none")) {
+            throw new IllegalArgumentException("expense.work-queue.partition-by must be category, role or none.");
+        }
+    }
+
+    /**
+     * Loads all pending expenses once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuilding = true;
+        try {
+            for (Object[] row : shardRouter.scatterGather(() -> expenseRepository.findQueueRowsByStatusId(PENDING_STATUS_ID))) {
+                int expenseId = (Integer) row[0];
+                if (decidedDuringRebuild.contains(expenseId)) {
+                    continue;
+                }
+                add(expenseId, (Integer) row[1], row[2] == null ? 0 : (Integer) row[2], (Integer) row[3],
+                        (Integer) row[4], (LocalDateTime) row[5]);
+            }
+        } finally {
+            rebuilding = false;
+            decidedDuringRebuild.clear();
+        }
+    }
+
+    /**
+     * Adds submitted expenses and removes decided ones.
+     * @param event The event published by ExpenseService or the auto-approval job
+     */
+    @EventListener
+    public void onExpenseEvent(ExpenseEvent event) {
+        if (event.getType() == ExpenseEvent.Type.SUBMITTED) {
+            add(event.getExpenseId(), event.getEmployeeId(), event.getRoleId(), event.getCategoryId(),
+                    event.getAmount(), event.getSubmitDate());
+        } else {
+            if (rebuilding) {
+                decidedDuringRebuild.add(event.getExpenseId());
+            }
+            remove(event.getExpenseId());
+        }
+    }
+
+    /**
+     * Recomputes the over-limit flag of every pending expense when the limits changed.
+     * @param event The event published by ReferenceDataChangeListener or ReferenceDataCoherence
+     */
+    @EventListener
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (!event.affects(ReferenceDataChangedEvent.ROLE, ReferenceDataChangedEvent.CATEGORY_PACKAGE,
+                ReferenceDataChangedEvent.ROLE_CATEGORY_PACKAGE)) {
+            return;
+        }
+        for (Entry entry : entries.values()) {
+            boolean overLimit = isOverLimit(entry.roleId, entry.categoryId, entry.amount);
+            if (overLimit != entry.overLimit) {
+                Entry updated = new Entry(entry.expenseId, entry.employeeId, entry.roleId, entry.categoryId,
+                        entry.amount, entry.submitDate, overLimit, entry.partition);
+                // Only replace the entry if it was not decided in the meantime
+                if (entries.replace(entry.expenseId, entry, updated)) {
+                    NavigableSet<Entry> partition = partitions.get(entry.partition);
+                    partition.remove(entry);
+                    partition.add(updated);
+                    if (entries.get(entry.expenseId) != updated) {
+                        partition.remove(updated);  // Decided while it was being moved
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the head of the queue without claiming anything.
+     * @param partition The role or category ID to look at, or null for all partitions
+     * @param limit The maximum number of items
+     * @return Pending expenses in priority order, with their current lease holder
+     */
+    public List<ApprovalQueueItem> peek(Integer partition, int limit) {
+        List<ApprovalQueueItem> items = new ArrayList<>();
+        Instant now = Instant.now();
+        for (Iterator<Entry> it = iterator(partition); it.hasNext() && items.size() < limit; ) {
+            Entry entry = it.next();
+            Lease lease = leases.get(entry.expenseId);
+            items.add(entry.toItem(lease != null && lease.isActive(now) ? lease : null));
+        }
+        return items;
+    }
+
+    /**
+     * Claims the top unclaimed items for a manager. Items the manager already holds are re-leased.
+     * @param partition The role or category ID to claim from, or null for all partitions
+     * @param managerId The employee ID of the manager
+     * @param limit The maximum number of items to claim
+     * @return The claimed items in priority order
+     */
+    public List<ApprovalQueueItem> claim(Integer partition, int managerId, int limit) {
+        List<ApprovalQueueItem> claimed = new ArrayList<>();
+        // Claims are rare compared to reads and writes; one lock makes check-and-lease atomic across managers
+        synchronized (leases) {
+            Instant now = Instant.now();
+            for (Iterator<Entry> it = iterator(partition); it.hasNext() && claimed.size() < limit; ) {
+                Entry entry = it.next();
+                Lease lease = leases.get(entry.expenseId);
+                if (lease != null && lease.isActive(now) && lease.managerId != managerId
+                        || deciding.containsKey(entry.expenseId)) {
+                    continue;
+                }
+                Lease granted = new Lease(managerId, now.plus(leaseDuration));
+                leases.put(entry.expenseId, granted);
+                claimed.add(entry.toItem(granted));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Gives up a manager's lease on an expense.
+     * @param expenseId The ID of the expense
+     * @param managerId The employee ID of the manager holding the lease
+     * @return true if the manager held the lease
+     */
+    public boolean release(int expenseId, int managerId) {
+        synchronized (leases) {
+            Lease lease = leases.get(expenseId);
+            if (lease == null || lease.managerId != managerId) {
+                return false;
+            }
+            leases.remove(expenseId);
+            return true;
+        }
+    }
+
+    /**
+     * Checks that a manager may decide an expense and keeps it from being claimed until finishDecision is called,
+     * so nobody is granted a lease on an expense that is being decided.
+     * @param expenseId The ID of the expense
+     * @param managerId The employee ID of the deciding manager, or null if not given
+     * @return false if another manager holds an active lease on the expense
+     */
+    public boolean beginDecision(int expenseId, Integer managerId) {
+        synchronized (leases) {
+            Lease lease = leases.get(expenseId);
+            if (lease != null && lease.isActive(Instant.now()) && (managerId == null || lease.managerId != managerId)) {
+                return false;
+            }
+            deciding.merge(expenseId, 1, Integer::sum);
+            return true;
+        }
+    }
+
+    /**
+     * Ends a decision started with beginDecision, whether or not it was applied.
+     * @param expenseId The ID of the expense
+     */
+    public void finishDecision(int expenseId) {
+        synchronized (leases) {
+            deciding.computeIfPresent(expenseId, (id, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * @return The number of pending expenses per partition
+     */
+    public Map<Integer, Integer> getPartitionSizes() {
+        Map<Integer, Integer> sizes = new TreeMap<>();
+        partitions.forEach((partition, set) -> sizes.put(partition, set.size()));
+        return sizes;
+    }
+
+    /**
+     * @return How the queue is partitioned: category, role or none
+     */
+    public String getPartitionBy() {
+        return partitionBy;
+    }
+
+    private void add(int expenseId, int employeeId, int roleId, int categoryId, int amount, LocalDateTime submitDate) {
+        int partition = switch (partitionBy) {
+            case "role" -> roleId;
+            case "category" -> categoryId;
+            default -> 0;
+        };
+        Entry entry = new Entry(expenseId, employeeId, roleId, categoryId, amount, submitDate,
+                isOverLimit(roleId, categoryId, amount), partition);
+        if (entries.putIfAbsent(expenseId, entry) == null) {
+            partitions.computeIfAbsent(partition, p -> new ConcurrentSkipListSet<>(order)).add(entry);
+        }
+    }
+
+    private boolean isOverLimit(int roleId, int categoryId, int amount) {
+        int limit = expensePolicyMatrix.limitForCategory(roleId, categoryId);
+        return limit < 0 || amount > limit;
+    }
+
+    private void remove(int expenseId) {
+        Entry entry = entries.remove(expenseId);
+        if (entry != null) {
+            NavigableSet<Entry> partition = partitions.get(entry.partition);
+            if (partition != null) {
+                partition.remove(entry);
+            }
+        }
+        leases.remove(expenseId);
+    }
+
+    // Iterates one partition, or merges all partitions in priority order
+    private Iterator<Entry> iterator(Integer partition) {
+        if (partition != null) {
+            NavigableSet<Entry> set = partitions.get(partition);
+            return set == null ? List.<Entry>of().iterator() : set.iterator();
+        }
+        Collection<NavigableSet<Entry>> all = partitions.values();
+        if (all.size() == 1) {
+            return all.iterator().next().iterator();
+        }
+        return new MergingIterator(all, order);
+    }
+
+    // Builds the ordering from keys such as "overLimit,age,amount"; a leading '-' reverses a key
+    private static Comparator<Entry> comparator(List<String> keys) {
+        Map<String, Comparator<Entry>> available = new LinkedHashMap<>();
+        available.put("overlimit", Comparator.comparing((Entry e) -> !e.overLimit));          // Over-limit claims first
+        available.put("age", Comparator.comparing((Entry e) -> e.submitDate,
+                Comparator.nullsLast(Comparator.naturalOrder())));                            // Oldest first
+        available.put("amount", Comparator.comparingInt((Entry e) -> e.amount).reversed());  // Largest first
+
+        Comparator<Entry> comparator = null;
+        for (String key : keys) {
+            String name = key.trim().toLowerCase(Locale.ROOT);
+            boolean reversed = name.startsWith("-");
+            Comparator<Entry> next = available.get(reversed ? name.substring(1) : name);
+            if (next == null) {
+                throw new IllegalArgumentException("Unknown work queue order key: " + key);
+            }
+            next = reversed ? next.reversed() : next;
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        // Expense ID last, so distinct expenses never compare equal
+        Comparator<Entry> byId = Comparator.comparingInt(e -> e.expenseId);
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    private record Entry(int expenseId, int employeeId, int roleId, int categoryId, int amount,
+                         LocalDateTime submitDate, boolean overLimit, int partition) {
+
+        ApprovalQueueItem toItem(Lease lease) {
+            return new ApprovalQueueItem(expenseId, employeeId, roleId, categoryId, amount, submitDate, overLimit,
+                    lease != null ? lease.managerId : null, lease != null ? lease.expiresAt : null);
+        }
+    }
+
+    private record Lease(int managerId, Instant expiresAt) {
+
+        boolean isActive(Instant now) {
+            return expiresAt.isAfter(now);
+        }
+    }
+
+    // k-way merge over the sorted partitions
+    private static final class MergingIterator implements Iterator<Entry> {
+        private final PriorityQueue<Head> heads;
+
+        MergingIterator(Collection<NavigableSet<Entry>> sets, Comparator<Entry> order) {
+            heads = new PriorityQueue<>((a, b) -> order.compare(a.current, b.current));
+            for (NavigableSet<Entry> set : sets) {
+                Iterator<Entry> it = set.iterator();
+                if (it.hasNext()) {
+                    heads.add(new Head(it.next(), it));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Entry next() {
+            Head head = heads.poll();
+            Entry result = head.current;
+            if (head.rest.hasNext()) {
+                head.current = head.rest.next();
+                heads.add(head);
+            }
+            return result;
+        }
+
+        private static final class Head {
+            private Entry current;
+            private final Iterator<Entry> rest;
+
+            Head(Entry current, Iterator<Entry> rest) {
+                this.current = current;
+                this.rest = rest;
+            }
+        }
+    }
+}
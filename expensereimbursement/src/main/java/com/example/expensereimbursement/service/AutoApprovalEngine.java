@@ -0,0 +1,253 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.Expense;
+import com.example.expensereimbursement.model.ExpenseEvent;
+import com.example.expensereimbursement.model.ExpenseStatus;
+import com.example.expensereimbursement.model.PayrollOutboxEntry;
+import com.example.expensereimbursement.repository.ExpenseRepository;
+import com.example.expensereimbursement.repository.ExpenseStatusRepository;
+import com.example.expensereimbursement.repository.PayrollOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduled job approving pending expenses that pass every AutoApprovalRules predicate.
+ * The pending queue is read in ID order in chunks; chunks are evaluated in parallel and each chunk's approvals
+ * are applied with one locking select and one bulk update in a short transaction, which also queues the approved
+ * expenses for payroll.
+ * The locking select uses SKIP LOCKED and re-checks the Pending status, so rows a manager is updating through
+ * updateExpenseStatus are left alone rather than waited on, and rows a manager already decided are never touched.
+ * Expenses a manager has claimed through the ApprovalWorkQueue are left to that manager while the lease is active,
+ * and are kept from being claimed while the engine is deciding them.
+ */
+@Component
+public class AutoApprovalEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutoApprovalEngine.class);
+
+    private static final int PENDING_STATUS_ID = 1;
+    private static final int APPROVED_STATUS_ID = 2;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseStatusRepository expenseStatusRepository;
+
+    @Autowired
+    private PayrollOutboxRepository payrollOutboxRepository;
+
+    @Autowired
+    private AutoApprovalRules autoApprovalRules;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ApprovalWorkQueue approvalWorkQueue;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${expense.auto-approval.enabled:false}")
+    private boolean enabled;
+
+    // Number of pending expenses evaluated and updated together
+    @Value("${expense.auto-approval.chunk-size:500}")
+    private int chunkSize;
+
+    // Number of chunks processed at the same time
+    @Value("${expense.auto-approval.parallelism:4}")
+    private int parallelism;
+
+    // Statistics of the last run and totals since start-up
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalEvaluated = new AtomicLong();
+    private final AtomicLong totalApproved = new AtomicLong();
+    private final Map<String, AtomicLong> heldBackByRule = new ConcurrentHashMap<>();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    /**
+     * Evaluates the whole pending queue once.
+     */
+    @Scheduled(fixedDelayString = "${expense.auto-approval.interval-ms:60000}",
+            initialDelayString = "${expense.auto-approval.interval-ms:60000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        ExpenseStatus approved = expenseStatusRepository.findById(APPROVED_STATUS_ID).orElse(null);
+        if (approved == null) {
+            logger.warn("Auto-approval skipped: 'Approved' status not found.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicLong evaluated = new AtomicLong();
+        AtomicLong approvedCount = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        AtomicLong claimed = new AtomicLong();
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            // Chunks never span shards: each one is read, locked and updated on the shard holding its expenses
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                int chunkShard = shard;
+                int afterId = 0;
+                List<Integer> ids;
+                do {
+                    int lastId = afterId;
+                    ids = shardRouter.onShard(chunkShard,
+                            () -> expenseRepository.findIdsByStatusIdAfter(PENDING_STATUS_ID, lastId, PageRequest.of(0, chunkSize)));
+                    if (!ids.isEmpty()) {
+                        List<Integer> chunk = ids;
+                        chunks.add(workers.submit(() -> shardRouter.onShard(chunkShard, () -> {
+                            processChunk(chunk, approved, evaluated, approvedCount, skipped, claimed);
+                            return null;
+                        })));
+                        afterId = ids.get(ids.size() - 1);
+                    }
+                } while (ids.size() == chunkSize);
+            }
+
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            // Shutting down; the remaining chunks are picked up by the next run
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+            logger.warn("Auto-approval run interrupted.");
+        } catch (ExecutionException | RuntimeException e) {
+            logger.error("Auto-approval run failed.", e instanceof ExecutionException ? e.getCause() : e);
+        } finally {
+            workers.shutdown();
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        runs.incrementAndGet();
+        totalEvaluated.addAndGet(evaluated.get());
+        totalApproved.addAndGet(approvedCount.get());
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("finishedAt", LocalDateTime.now());
+        run.put("durationMs", elapsedMs);
+        run.put("evaluated", evaluated.get());
+        run.put("approved", approvedCount.get());
+        run.put("skippedLockedOrChanged", skipped.get());
+        run.put("skippedClaimed", claimed.get());
+        run.put("evaluatedPerSecond", evaluated.get() * 1000 / elapsedMs);
+        lastRun = run;
+
+        logger.info("Auto-approval run: {}", run);
+    }
+
+    /**
+     * @return The active rules, the last run's throughput and totals since start-up
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("rules", autoApprovalRules.getRuleNames());
+        statistics.put("runs", runs.get());
+        statistics.put("totalEvaluated", totalEvaluated.get());
+        statistics.put("totalApproved", totalApproved.get());
+        Map<String, Long> heldBack = new LinkedHashMap<>();
+        heldBackByRule.forEach((rule, count) -> heldBack.put(rule, count.get()));
+        statistics.put("heldBackByRule", heldBack);
+        statistics.put("lastRun", lastRun);
+        return statistics;
+    }
+
+    // Evaluates one chunk and approves the expenses that pass every rule
+    private void processChunk(List<Integer> ids, ExpenseStatus approved, AtomicLong evaluated,
+                              AtomicLong approvedCount, AtomicLong skipped, AtomicLong claimed) {
+        Map<Integer, Expense> candidates = new LinkedHashMap<>();
+        for (Expense expense : expenseRepository.findAllById(ids)) {
+            evaluated.incrementAndGet();
+            String failedRule = autoApprovalRules.firstFailingRule(expense);
+            if (failedRule == null) {
+                candidates.put(expense.getId(), expense);
+            } else {
+                heldBackByRule.computeIfAbsent(failedRule, rule -> new AtomicLong()).incrementAndGet();
+            }
+        }
+
+        // A manager's active claim wins over the engine, as it does over other managers
+        candidates.keySet().removeIf(id -> {
+            if (approvalWorkQueue.beginDecision(id, null)) {
+                return false;
+            }
+            claimed.incrementAndGet();
+            return true;
+        });
+        if (candidates.isEmpty()) {
+            return;
+        }
+        try {
+            approve(ids, candidates, approved, approvedCount, skipped);
+        } finally {
+            candidates.keySet().forEach(approvalWorkQueue::finishDecision);
+        }
+    }
+
+    // Approves the candidates that are still pending and not locked by a manager's update
+    private void approve(List<Integer> ids, Map<Integer, Expense> candidates, ExpenseStatus approved,
+                         AtomicLong approvedCount, AtomicLong skipped) {
+        LocalDateTime approvalDate = LocalDateTime.now();
+        Set<Integer> applied = transactionTemplate.execute(status -> {
+            Set<Integer> locked = new HashSet<>(expenseRepository.lockIdsWithStatus(candidates.keySet(), PENDING_STATUS_ID));
+            if (!locked.isEmpty()) {
+                expenseRepository.updateStatusByIds(locked, approved, approvalDate);
+                List<PayrollOutboxEntry> outbox = new ArrayList<>(locked.size());
+                // In ID order, so each employee's expenses reach payroll in submission order
+                for (Integer id : ids) {
+                    Expense expense = candidates.get(id);
+                    if (expense != null && locked.contains(id)) {
+                        expense.setApprovalDate(approvalDate);
+                        outbox.add(new PayrollOutboxEntry(expense));
+                    }
+                }
+                payrollOutboxRepository.saveAll(outbox);
+            }
+            return locked;
+        });
+
+        skipped.addAndGet(candidates.size() - applied.size());
+        approvedCount.addAndGet(applied.size());
+
+        // Notify listeners after the commit, as updateExpenseStatus does
+        for (Integer id : applied) {
+            Expense expense = candidates.get(id);
+            expense.setStatus(approved);
+            expense.setApprovalDate(approvalDate);
+            eventPublisher.publishEvent(new ExpenseEvent(ExpenseEvent.Type.APPROVED, expense, PENDING_STATUS_ID,
+                    ExpenseEvent.SYSTEM_ACTOR));
+        }
+    }
+}
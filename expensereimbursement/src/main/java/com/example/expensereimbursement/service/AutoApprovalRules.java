@@ -0,0 +1,92 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.Expense;
+import com.example.expensereimbursement.model.Role;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Configurable predicates a pending expense must all pass to be approved automatically.
+ * Every rule is switched on by its property; the package limit rule uses the limit of the CategoryPackage the
+ * employee's role has for the expense's category.
+ */
+@Component
+public class AutoApprovalRules {
+
+    @Autowired
+    private ExpensePolicyMatrix expensePolicyMatrix;
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    public AutoApprovalRules(@Value("${expense.auto-approval.max-amount:0}") int maxAmount,
+                             @Value("${expense.auto-approval.categories:}") List<String> categories,
+                             @Value("${expense.auto-approval.roles:}") List<String> roles,
+                             @Value("${expense.auto-approval.max-package-limit-ratio:1.0}") double maxPackageLimitRatio) {
+        // Role and category must still be offered by the company
+        rules.add(new Rule("activeRoleAndCategory", expense -> {
+            Role role = expense.getEmployee().getRole();
+            return role != null && role.isStatus() && expense.getCategory().isStatus();
+        }));
+
+        if (maxAmount > 0) {
+            rules.add(new Rule("maxAmount", expense -> expense.getAmount() <= maxAmount));
+        }
+
+        Set<String> allowedCategories = normalize(categories);
+        if (!allowedCategories.isEmpty()) {
+            rules.add(new Rule("category", expense -> allowedCategories.contains(normalize(expense.getCategory().getName()))));
+        }
+
+        Set<String> allowedRoles = normalize(roles);
+        if (!allowedRoles.isEmpty()) {
+            rules.add(new Rule("role", expense -> allowedRoles.contains(normalize(expense.getEmployee().getRole().getName()))));
+        }
+
+        if (maxPackageLimitRatio > 0) {
+            rules.add(new Rule("packageLimit", expense -> {
+                int limit = expensePolicyMatrix.limitForCategory(expense.getEmployee().getRole().getId(), expense.getCategory().getId());
+                return limit >= 0 && expense.getAmount() <= limit * maxPackageLimitRatio;
+            }));
+        }
+    }
+
+    /**
+     * Evaluates the rules in order.
+     * @param expense A pending expense with employee, role and category loaded
+     * @return The name of the first rule the expense fails, or null if it may be approved
+     */
+    public String firstFailingRule(Expense expense) {
+        for (Rule rule : rules) {
+            if (!rule.predicate.test(expense)) {
+                return rule.name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The names of the active rules, in evaluation order
+     */
+    public List<String> getRuleNames() {
+        return rules.stream().map(Rule::name).toList();
+    }
+
+    private static Set<String> normalize(List<String> names) {
+        return names.stream().map(AutoApprovalRules::normalize).filter(name -> !name.isEmpty()).collect(Collectors.toSet());
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Rule(String name, Predicate<Expense> predicate) {
+    }
+}
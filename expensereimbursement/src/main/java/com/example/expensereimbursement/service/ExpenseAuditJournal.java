@@ -0,0 +1,386 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.ExpenseAuditRecord;
+import com.example.expensereimbursement.model.ExpenseEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of expense submissions and status transitions.
+ * Records are written by a single background thread into memory-mapped segment files of a fixed size; when a
+ * segment is full the next one is started. The writer takes every record queued since its last write, appends
+ * them and forces the written range to disk once (group commit) before acknowledging them. Callers never wait for
+ * the disk: when the writer falls so far behind that the queue is full, the record is rejected and logged rather than
+ * blocking the request. An acknowledged record survives the process being killed; surviving a power loss relies on
+ * force() reaching the disk, which the tests cannot show.
+ * Each record is [length][crc32][payload]. On start-up the segments are scanned and the journal resumes after
+ * the last intact record; a torn record left by a crash is discarded. Only one journal may write to a directory at
+ * a time: it holds a lock on the directory while open.
+ */
+@Component
+public class ExpenseAuditJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseAuditJournal.class);
+
+    private static final String LOCK_FILE = "journal.lock";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // sequence, recordedAt, type code, expenseId, employeeId, actorId, amount, fromStatusId, toStatusId
+    private static final int PAYLOAD_SIZE = 8 + 8 + 1 + 4 * 6;
+    private static final int HEADER_SIZE = 4 + 4;
+    static final int RECORD_SIZE = HEADER_SIZE + PAYLOAD_SIZE;
+
+    private final Path directory;
+
+    private final FileChannel lockChannel;
+
+    private final FileLock lock;
+
+    private final int segmentSize;
+
+    private final int maxBatchSize;
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    // Positions of each expense's records: segment index in the high 32 bits, offset in the low 32 bits
+    private final Map<Integer, List<Long>> positionsByExpense = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<PendingRecord> queue;
+
+    private final Thread writer;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    // Owned by the writer thread after start-up
+    private long nextSequence = 1;
+
+    public ExpenseAuditJournal(@Value("${expense.audit-journal.directory:audit-journal}") String directory,
+                               @Value("${expense.audit-journal.segment-size:67108864}") int segmentSize,
+                               @Value("${expense.audit-journal.max-batch-size:1024}") int maxBatchSize,
+                               @Value("${expense.audit-journal.queue-capacity:65536}") int queueCapacity) throws IOException {
+        if (segmentSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment size must hold at least one record (" + RECORD_SIZE + " bytes).");
+        }
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+
+        Files.createDirectories(this.directory);
+        lockChannel = FileChannel.open(this.directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock = lockDirectory();
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+
+        writer = new Thread(this::writeLoop, "expense-audit-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Journals submissions and status transitions without delaying the request that caused them.
+     * @param event The event published after the change was saved
+     */
+    @EventListener
+    public void onExpenseEvent(ExpenseEvent event) {
+        append(event.getType(), event.getExpenseId(), event.getEmployeeId(), event.getActorId(), event.getAmount(),
+                event.getPreviousStatusId(), event.getStatusId());
+    }
+
+    /**
+     * Queues a record for the writer thread without blocking; a full queue rejects the record.
+     * @param actorId The employee who made the change, or ExpenseEvent.SYSTEM_ACTOR / UNKNOWN_ACTOR
+     * @return Completes with the record once it has been forced to disk, or exceptionally if it was rejected
+     */
+    public CompletableFuture<ExpenseAuditRecord> append(ExpenseEvent.Type type, int expenseId, int employeeId, int actorId,
+                                                        int amount, int fromStatusId, int toStatusId) {
+        if (!running) {
+            throw new IllegalStateException("Audit journal is closed.");
+        }
+        ExpenseAuditRecord record = new ExpenseAuditRecord(0, Instant.now(), type, expenseId, employeeId, actorId,
+                amount, fromStatusId, toStatusId);
+        PendingRecord pending = new PendingRecord(record, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            long count = rejected.incrementAndGet();
+            logger.error("Audit journal queue is full; {} record of expense {} not journaled ({} rejected so far)",
+                    type, expenseId, count);
+            pending.acknowledged.completeExceptionally(
+                    new IllegalStateException("Audit journal queue is full; the writer is falling behind."));
+        }
+        return pending.acknowledged;
+    }
+
+    /**
+     * @return The number of records rejected because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Replays the journaled history of one expense.
+     * @param expenseId The ID of the expense
+     * @return The expense's records in the order they were written
+     */
+    public List<ExpenseAuditRecord> history(int expenseId) {
+        List<ExpenseAuditRecord> records = new ArrayList<>();
+        for (long position : positionsByExpense.getOrDefault(expenseId, List.of())) {
+            Segment segment = segments.get((int) (position >>> 32));
+            records.add(read(segment.buffer, (int) position + HEADER_SIZE));
+        }
+        return records;
+    }
+
+    /**
+     * Stops the writer after everything queued so far has been written and forced to disk.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        running = false;
+        writer.join();
+        lock.release();
+        lockChannel.close();
+    }
+
+    // Fails instead of waiting when another journal, in this process or another, writes to the directory
+    private FileLock lockDirectory() throws IOException {
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Audit journal directory " + directory + " is in use by another journal.");
+        }
+        return acquired;
+    }
+
+    // Scans the existing segments, rebuilds the per-expense index and positions the writer after the last intact record
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        for (Path file : files) {
+            Segment segment = openSegment(file);
+            int index = segments.size();
+            segments.add(segment);
+
+            int offset = 0;
+            while (offset + RECORD_SIZE <= segmentSize && isIntact(segment.buffer, offset)) {
+                ExpenseAuditRecord record = read(segment.buffer, offset + HEADER_SIZE);
+                if (nextSequence > 1 && record.getSequence() != nextSequence) {
+                    break; // Left over from before an earlier recovery, not part of the journal
+                }
+                positionsByExpense.computeIfAbsent(record.getExpenseId(), id -> new CopyOnWriteArrayList<>())
+                        .add(((long) index << 32) | offset);
+                nextSequence = record.getSequence() + 1;
+                offset += RECORD_SIZE;
+            }
+
+            // Whatever follows the last intact record was never acknowledged (a torn or partially flushed batch);
+            // clear it up to the first untouched slot so it cannot be mistaken for a record once writing resumes
+            int cleared = offset;
+            while (cleared < segmentSize && !isEmpty(segment.buffer, cleared)) {
+                for (int i = cleared; i < Math.min(cleared + RECORD_SIZE, segmentSize); i++) {
+                    segment.buffer.put(i, (byte) 0);
+                }
+                cleared += RECORD_SIZE;
+            }
+            if (cleared > offset) {
+                segment.buffer.force(offset, Math.min(cleared, segmentSize) - offset);
+            }
+            segment.position = offset;
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(openSegment(segmentPath(nextSequence)));
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException | IOException e) {
+                batch.forEach(pending -> pending.acknowledged.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Appends a batch and forces it to disk with one sync per touched segment before acknowledging it
+    private void writeBatch(List<PendingRecord> batch) throws IOException {
+        int segmentIndex = segments.size() - 1;
+        Segment segment = segments.get(segmentIndex);
+        int batchStart = segment.position;
+        List<Long> positions = new ArrayList<>(batch.size());
+
+        for (PendingRecord pending : batch) {
+            if (segment.position + RECORD_SIZE > segmentSize) {
+                // Segment full: make what was written durable, then roll to a new segment
+                segment.buffer.force(batchStart, segment.position - batchStart);
+                segment = openSegment(segmentPath(nextSequence));
+                segments.add(segment);
+                segmentIndex++;
+                batchStart = 0;
+            }
+            pending.record.setSequence(nextSequence++);
+            write(segment.buffer, segment.position, pending.record);
+            positions.add(((long) segmentIndex << 32) | segment.position);
+            segment.position += RECORD_SIZE;
+        }
+        segment.buffer.force(batchStart, segment.position - batchStart);
+
+        // Only durable records become visible to history() and are acknowledged
+        for (int i = 0; i < batch.size(); i++) {
+            PendingRecord pending = batch.get(i);
+            positionsByExpense.computeIfAbsent(pending.record.getExpenseId(), id -> new CopyOnWriteArrayList<>())
+                    .add(positions.get(i));
+            pending.acknowledged.complete(pending.record);
+        }
+    }
+
+    private Segment openSegment(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private static void write(MappedByteBuffer buffer, int offset, ExpenseAuditRecord record) {
+        int payload = offset + HEADER_SIZE;
+        buffer.putLong(payload, record.getSequence());
+        buffer.putLong(payload + 8, record.getRecordedAt().toEpochMilli());
+        buffer.put(payload + 16, typeCode(record.getType()));
+        buffer.putInt(payload + 17, record.getExpenseId());
+        buffer.putInt(payload + 21, record.getEmployeeId());
+        buffer.putInt(payload + 25, record.getActorId());
+        buffer.putInt(payload + 29, record.getAmount());
+        buffer.putInt(payload + 33, record.getFromStatusId());
+        buffer.putInt(payload + 37, record.getToStatusId());
+        buffer.putInt(offset + 4, checksum(buffer, payload));
+        // The length is written last, so a record is only recognised once it is complete
+        buffer.putInt(offset, PAYLOAD_SIZE);
+    }
+
+    private static ExpenseAuditRecord read(MappedByteBuffer buffer, int payload) {
+        return new ExpenseAuditRecord(
+                buffer.getLong(payload),
+                Instant.ofEpochMilli(buffer.getLong(payload + 8)),
+                typeOf(buffer.get(payload + 16)),
+                buffer.getInt(payload + 17),
+                buffer.getInt(payload + 21),
+                buffer.getInt(payload + 25),
+                buffer.getInt(payload + 29),
+                buffer.getInt(payload + 33),
+                buffer.getInt(payload + 37));
+    }
+
+    // The codes are part of the file format: never renumber them, and give a new type a new code
+    private static byte typeCode(ExpenseEvent.Type type) {
+        return switch (type) {
+            case SUBMITTED -> 1;
+            case APPROVED -> 2;
+            case REJECTED -> 3;
+        };
+    }
+
+    private static ExpenseEvent.Type typeOf(byte code) {
+        return switch (code) {
+            case 1 -> ExpenseEvent.Type.SUBMITTED;
+            case 2 -> ExpenseEvent.Type.APPROVED;
+            case 3 -> ExpenseEvent.Type.REJECTED;
+            default -> null;
+        };
+    }
+
+    private static boolean isIntact(MappedByteBuffer buffer, int offset) {
+        if (buffer.getInt(offset) != PAYLOAD_SIZE) {
+            return false;
+        }
+        return typeOf(buffer.get(offset + HEADER_SIZE + 16)) != null
+                && buffer.getInt(offset + 4) == checksum(buffer, offset + HEADER_SIZE);
+    }
+
+    private boolean isEmpty(MappedByteBuffer buffer, int offset) {
+        for (int i = offset; i < Math.min(offset + RECORD_SIZE, segmentSize); i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int payload) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(payload, PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    private static final class Segment {
+        private final MappedByteBuffer buffer;
+        private int position; // Next write offset; only used by the writer thread after recovery
+
+        private Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private record PendingRecord(ExpenseAuditRecord record, CompletableFuture<ExpenseAuditRecord> acknowledged) {
+    }
+}
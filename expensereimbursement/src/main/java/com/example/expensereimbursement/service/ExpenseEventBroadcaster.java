@@ -0,0 +1,178 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.ExpenseEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans ExpenseEvents out to Server-Sent Events subscribers.
+ * The most recent events are kept in a ring buffer so a reconnecting client can resume from its Last-Event-ID.
+ * Event IDs are "&lt;epoch&gt;-&lt;sequence&gt;", the epoch being the start time of this instance: the sequence
+ * restarts with the instance, so an ID from an earlier run (or another instance) cannot be resumed and gets a reset.
+ * A fresh subscription starts with a CONNECTED event carrying the current last ID, so a client that subscribes
+ * before loading its snapshot misses nothing in between and always has an ID to resume from.
+ * Each subscriber has a bounded queue drained on its own (virtual) thread; a client that falls so far behind
+ * that its queue overflows is disconnected instead of slowing down the publisher, and resumes on reconnect.
+ */
+@Component
+public class ExpenseEventBroadcaster {
+
+    // Event name telling the client it must reload GET /api/expenses because the requested events are no longer buffered
+    public static final String RESET_EVENT = "RESET";
+
+    // Event name of the first event of a fresh subscription; its ID is the last event ID at the time of subscribing
+    public static final String CONNECTED_EVENT = "CONNECTED";
+
+    private final StreamedEvent[] history;
+
+    private final int clientBufferSize;
+
+    private final long emitterTimeoutMs;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Prefix of the event IDs of this run
+    private final String epoch = String.valueOf(System.currentTimeMillis());
+
+    // Sequence number of the last published event; guarded by "this"
+    private long lastSequence;
+
+    public ExpenseEventBroadcaster(@Value("${expense.events.history-size:4096}") int historySize,
+                                   @Value("${expense.events.client-buffer-size:256}") int clientBufferSize,
+                                   @Value("${expense.events.emitter-timeout-ms:0}") long emitterTimeoutMs) {
+        this.history = new StreamedEvent[historySize];
+        this.clientBufferSize = clientBufferSize;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+    }
+
+    /**
+     * Assigns the next event ID, records the event for resumption and queues it for every subscriber.
+     * @param event The event published by ExpenseService
+     */
+    @EventListener
+    public void onExpenseEvent(ExpenseEvent event) {
+        StreamedEvent streamed;
+        synchronized (this) {
+            streamed = new StreamedEvent(++lastSequence, event.getType().name(), event);
+            history[(int) (streamed.sequence % history.length)] = streamed;
+            for (Subscriber subscriber : subscribers) {
+                subscriber.enqueue(streamed);
+            }
+        }
+    }
+
+    /**
+     * Registers a new subscriber.
+     * @param resumeAfterId The last event ID the client has seen, or null to receive a CONNECTED event and then
+     *                      only new events
+     * @return The emitter to return from the controller
+     */
+    public SseEmitter subscribe(String resumeAfterId) {
+        Subscriber subscriber = new Subscriber(new SseEmitter(emitterTimeoutMs));
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+
+        synchronized (this) {
+            if (resumeAfterId == null) {
+                subscriber.enqueue(new StreamedEvent(lastSequence, CONNECTED_EVENT, null));
+            } else if (!resumeAfterId.equals(eventId(lastSequence))) {
+                long resumeAfter = sequenceOf(resumeAfterId);
+                long oldestBuffered = Math.max(1, lastSequence - history.length + 1);
+                if (resumeAfter < 0 || resumeAfter > lastSequence || resumeAfter + 1 < oldestBuffered
+                        || lastSequence - resumeAfter > clientBufferSize) {
+                    // The gap cannot be replayed (or the ID is from another run), the client has to reload its snapshot
+                    subscriber.enqueue(new StreamedEvent(lastSequence, RESET_EVENT, null));
+                } else {
+                    for (long sequence = resumeAfter + 1; sequence <= lastSequence; sequence++) {
+                        subscriber.enqueue(history[(int) (sequence % history.length)]);
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        return subscriber.emitter;
+    }
+
+    /**
+     * @return The number of connected subscribers
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    // Sequence number of an event ID of this run; -1 for an ID of another run or a malformed one
+    private long sequenceOf(String eventId) {
+        if (!eventId.startsWith(epoch + "-")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // An event with its sequence number and SSE event name; RESET and CONNECTED markers have no event
+    private record StreamedEvent(long sequence, String name, ExpenseEvent event) {
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<StreamedEvent> queue = new ArrayBlockingQueue<>(clientBufferSize);
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // Never blocks the publisher: a full queue means the client is too slow and gets disconnected
+        private void enqueue(StreamedEvent event) {
+            if (!queue.offer(event)) {
+                subscribers.remove(this);
+                emitter.complete();
+                return;
+            }
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                StreamedEvent next;
+                while ((next = queue.poll()) != null) {
+                    emitter.send(SseEmitter.event().id(eventId(next.sequence)).name(next.name)
+                            .data(next.event == null ? "" : next.event));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the emitter was already completed
+                subscribers.remove(this);
+                queue.clear();
+            } finally {
+                sending.set(false);
+            }
+            // An event may have been queued after the last poll but before the flag was cleared
+            if (!queue.isEmpty() && sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+    }
+}
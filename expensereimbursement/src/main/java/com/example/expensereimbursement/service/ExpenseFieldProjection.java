@@ -0,0 +1,202 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.Expense;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse fieldsets for the expense read endpoints.
+ * A "fields" parameter such as "id,amount,category.name,status.name" is turned into a JPA criteria query that
+ * selects only those columns and joins only the tables they live in; an ID of a related row (employee.id,
+ * category.id, status.id) is read from the foreign key without a join. Rows are returned as nested maps with the
+ * same shape as the full Expense JSON, so clients can switch between both representations.
+ */
+@Component
+public class ExpenseFieldProjection {
+
+    // Every selectable field, in the order it is serialized; the path is relative to the expense
+    private static final List<String> FIELDS = List.of(
+            "id", "amount", "description", "submitDate", "approvalDate",
+            "employee.id", "employee.name", "employee.email", "employee.role.id", "employee.role.name",
+            "category.id", "category.name", "category.status",
+            "status.id", "status.name", "status.status");
+
+    // Extra column used to merge the results of the shards
+    private static final String MERGE_KEY = "__submitDate";
+
+    private static final Comparator<Row> NEWEST_FIRST =
+            Comparator.comparing(Row::submitDate, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    /**
+     * Filters the projected query: receives the criteria builder and the expense root.
+     */
+    @FunctionalInterface
+    public interface Filter {
+        Predicate toPredicate(CriteriaBuilder builder, Root<Expense> expense);
+    }
+
+    /**
+     * Parses a comma-separated field list. A related object name (employee, category, status, employee.role)
+     * selects all of its fields.
+     * @param fields The requested fields, e.g. "id,amount,category.name,status.name"
+     * @return The selected field paths in serialization order
+     * @throws IllegalArgumentException if the list is empty or names an unknown field
+     */
+    public List<String> parse(String fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            boolean found = false;
+            for (String known : FIELDS) {
+                if (known.equalsIgnoreCase(name) || known.toLowerCase(Locale.ROOT).startsWith(name.toLowerCase(Locale.ROOT) + ".")) {
+                    selected.add(known);
+                    found = true;
+                }
+            }
+            if (!found) {
+                throw new IllegalArgumentException("Error: Unknown field '" + name + "'. Available fields: " + String.join(",", FIELDS));
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("Error: At least one field must be requested.");
+        }
+        List<String> ordered = new ArrayList<>();
+        for (String known : FIELDS) {
+            if (selected.contains(known)) {
+                ordered.add(known);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Runs a query selecting only the given fields on every shard and merges the results.
+     * @param fields The field paths returned by parse
+     * @param filter The where clause
+     * @param newestFirst true to order by submitDate descending
+     * @return One nested map per expense
+     */
+    public List<Map<String, Object>> find(List<String> fields, Filter filter, boolean newestFirst) {
+        List<Row> rows = newestFirst
+                ? shardRouter.scatterGather(() -> query(fields, filter, true), NEWEST_FIRST)
+                : shardRouter.scatterGather(() -> query(fields, filter, false));
+        return values(rows);
+    }
+
+    /**
+     * Runs a query selecting only the given fields on one shard, e.g. the shard of an employee.
+     * @param shard The shard index
+     * @param fields The field paths returned by parse
+     * @param filter The where clause
+     * @param newestFirst true to order by submitDate descending
+     * @return One nested map per expense
+     */
+    public List<Map<String, Object>> findOnShard(int shard, List<String> fields, Filter filter, boolean newestFirst) {
+        return values(shardRouter.onShard(shard, () -> query(fields, filter, newestFirst)));
+    }
+
+    private List<Row> query(List<String> fields, Filter filter, boolean newestFirst) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Expense> expense = query.from(Expense.class);
+
+        // Joins are created on first use, so only the tables holding a requested column are read
+        Map<String, From<?, ?>> joins = new HashMap<>();
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String field : fields) {
+            selections.add(path(expense, joins, field).alias(field));
+        }
+        // The merge of the shards' results needs the submit date; it is selected once more unless it was requested
+        String mergeKey = fields.contains("submitDate") ? "submitDate" : MERGE_KEY;
+        if (mergeKey.equals(MERGE_KEY)) {
+            selections.add(expense.get("submitDate").alias(MERGE_KEY));
+        }
+        query.multiselect(selections);
+        query.where(filter.toPredicate(builder, expense));
+        if (newestFirst) {
+            query.orderBy(builder.desc(expense.get("submitDate")));
+        }
+
+        List<Row> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (String field : fields) {
+                put(values, field, tuple.get(field));
+            }
+            rows.add(new Row((LocalDateTime) tuple.get(mergeKey), values));
+        }
+        return rows;
+    }
+
+    private static List<Map<String, Object>> values(List<Row> rows) {
+        List<Map<String, Object>> values = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            values.add(row.values());
+        }
+        return values;
+    }
+
+    // Resolves "category.name" to a path, joining category; "category.id" uses the foreign key column instead
+    private static Path<?> path(Root<Expense> expense, Map<String, From<?, ?>> joins, String field) {
+        String[] parts = field.split("\\.");
+        From<?, ?> from = expense;
+        String prefix = "";
+        for (int i = 0; i < parts.length - 1; i++) {
+            String association = parts[i];
+            boolean foreignKeyOnly = i == parts.length - 2 && parts[parts.length - 1].equals("id");
+            if (foreignKeyOnly) {
+                return from.get(association).get("id");
+            }
+            prefix = prefix.isEmpty() ? association : prefix + "." + association;
+            From<?, ?> parent = from;
+            from = joins.computeIfAbsent(prefix, p -> (Join<?, ?>) parent.join(association, JoinType.LEFT));
+        }
+        return from.get(parts[parts.length - 1]);
+    }
+
+    private record Row(LocalDateTime submitDate, Map<String, Object> values) {
+    }
+
+    // Stores the value under its dotted path, creating the nested maps on the way
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> row, String field, Object value) {
+        String[] parts = field.split("\\.");
+        Map<String, Object> target = row;
+        for (int i = 0; i < parts.length - 1; i++) {
+            target = (Map<String, Object>) target.computeIfAbsent(parts[i], p -> new LinkedHashMap<String, Object>());
+        }
+        target.put(parts[parts.length - 1], value);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.Expense;
+import com.example.expensereimbursement.model.ExpenseEvent;
+import com.example.expensereimbursement.model.ReferenceDataChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of getExpensesByStatusAndCategory results, keyed on (statusId, category name).
+ * Submissions and status changes invalidate only the keys they affect: the old and new status, each for the
+ * expense's category and for "all categories". Changes to employees, roles or categories, which are embedded in
+ * the cached expenses, clear the whole cache.
+ * Those events are only published on the instance that made the change, so entries also expire after a TTL, which
+ * bounds how long changes made by other instances (or directly in the database) can go unseen.
+ * A per-key generation counter (and a global one for clearing) makes sure a query that started before an invalidation never stores its
+ * (possibly stale) result afterwards.
+ */
+@Component
+public class ExpenseHistoryCache {
+
+    // Status ID given to newly submitted expenses
+    private static final int PENDING_STATUS_ID = 1;
+
+    private final int maxEntries;
+
+    // Time to live of an entry; 0 = until invalidated
+    private final long ttlNanos;
+
+    // Guarded by "this"
+    private final LinkedHashMap<Key, Entry> entries;
+
+    // Bumped on every invalidation of a key; guarded by "this"
+    private final Map<Key, Long> generations = new HashMap<>();
+
+    // Bumped whenever the whole cache is cleared; guarded by "this"
+    private long globalGeneration;
+
+    // Statistics; guarded by "this"
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public ExpenseHistoryCache(@Value("${expense.history-cache.max-entries:256}") int maxEntries,
+                               @Value("${expense.history-cache.ttl-ms:5000}") long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ExpenseHistoryCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result for the query, loading and caching it on a miss.
+     * Exceptions thrown by the loader (e.g. an unknown category) are passed on and nothing is cached.
+     * @param statusId The status ID of the query
+     * @param categoryName The category name of the query, or null/empty for all categories
+     * @param loader Runs the query against the database
+     * @return The (unmodifiable) query result
+     */
+    public List<Expense> get(int statusId, String categoryName, Supplier<List<Expense>> loader) {
+        Key key = new Key(statusId, normalize(categoryName));
+        long generation;
+        long global;
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null && ttlNanos > 0 && System.nanoTime() - cached.loadedAt >= ttlNanos) {
+                entries.remove(key);
+                expirations++;
+                cached = null;
+            }
+            if (cached != null) {
+                hits++;
+                return cached.expenses;
+            }
+            misses++;
+            generation = generations.getOrDefault(key, 0L);
+            global = globalGeneration;
+        }
+
+        long loadedAt = System.nanoTime();
+        List<Expense> loaded = List.copyOf(loader.get());
+
+        synchronized (this) {
+            // Only cache the result if no write invalidated the key while the query was running
+            if (generations.getOrDefault(key, 0L) == generation && globalGeneration == global) {
+                entries.put(key, new Entry(loaded, loadedAt));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops the cached result for one query and for the same status across all categories.
+     * @param statusId The status ID whose results changed
+     * @param categoryName The name of the category whose results changed
+     */
+    public synchronized void invalidate(int statusId, String categoryName) {
+        invalidateKey(new Key(statusId, normalize(categoryName)));
+        invalidateKey(new Key(statusId, ""));
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public synchronized void invalidateAll() {
+        invalidations += entries.size();
+        entries.clear();
+        // Per-key generations only matter for loads that started before this point, which the global one covers
+        generations.clear();
+        globalGeneration++;
+    }
+
+    /**
+     * Invalidates the keys affected by a submission or status change.
+     * ExpenseService publishes the event after the change has been saved.
+     * @param event The event published by ExpenseService
+     */
+    @EventListener
+    public void onExpenseEvent(ExpenseEvent event) {
+        if (event.getType() == ExpenseEvent.Type.SUBMITTED) {
+            invalidate(PENDING_STATUS_ID, event.getCategoryName());
+        } else {
+            invalidate(event.getPreviousStatusId(), event.getCategoryName());
+            invalidate(event.getStatusId(), event.getCategoryName());
+        }
+    }
+
+    /**
+     * Clears the cache when reference data embedded in the cached expenses changed.
+     * @param event The event published by ReferenceDataChangeListener or ReferenceDataCoherence
+     */
+    @EventListener
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (event.affects(ReferenceDataChangedEvent.EMPLOYEE, ReferenceDataChangedEvent.ROLE,
+                ReferenceDataChangedEvent.CATEGORY)) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * @return Hit/miss counts, hit rate, evictions, expirations, invalidations and the current number of entries
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("size", entries.size());
+        statistics.put("maxEntries", maxEntries);
+        statistics.put("hits", hits);
+        statistics.put("misses", misses);
+        statistics.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        statistics.put("evictions", evictions);
+        statistics.put("expirations", expirations);
+        statistics.put("invalidations", invalidations);
+        return statistics;
+    }
+
+    private void invalidateKey(Key key) {
+        entries.remove(key);
+        generations.merge(key, 1L, Long::sum);
+        invalidations++;
+    }
+
+    // Category names are matched case-insensitively by the database, so the keys are lower-cased
+    private static String normalize(String categoryName) {
+        return categoryName == null ? "" : categoryName.toLowerCase(Locale.ROOT);
+    }
+
+    // A cached result; loadedAt is taken before the query ran, so the TTL also covers the query's own duration
+    private record Entry(List<Expense> expenses, long loadedAt) {
+    }
+
+    // Normalized query parameters; an empty category means "all categories"
+    private record Key(int statusId, String category) {
+    }
+}
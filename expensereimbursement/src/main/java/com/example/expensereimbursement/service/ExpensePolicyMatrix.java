@@ -0,0 +1,209 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.CategoryPackage;
+import com.example.expensereimbursement.model.ExpenseValidationRequest;
+import com.example.expensereimbursement.model.ExpenseValidationResult;
+import com.example.expensereimbursement.model.ReferenceDataChangedEvent;
+import com.example.expensereimbursement.model.Role;
+import com.example.expensereimbursement.model.RoleCategoryPackage;
+import com.example.expensereimbursement.repository.CategoryPackageRepository;
+import com.example.expensereimbursement.repository.RoleCategoryPackageRepository;
+import com.example.expensereimbursement.repository.RoleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory (role x category package) expense limit matrix.
+ * The matrix is stored sparsely: sorted ID arrays per role, so validating an item is a few binary searches over
+ * primitive arrays instead of two findById calls and a RoleCategoryPackage scan, and the memory used depends on the
+ * number of associations rather than on how large (or sparse) the IDs are. A second (role x category) table gives
+ * the package limit that applies to an expense of a given category.
+ * The matrix is dropped when roles or category packages change (on this or another instance, see
+ * ReferenceDataCoherence) and rebuilt from the database on next use.
+ */
+@Component
+public class ExpensePolicyMatrix {
+
+    // Marks a (role, package) pair that is not associated, or an unknown package
+    private static final int NO_LIMIT = -1;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private CategoryPackageRepository categoryPackageRepository;
+
+    @Autowired
+    private RoleCategoryPackageRepository roleCategoryPackageRepository;
+
+    // Loaded on first use so start-up does not touch the database
+    private volatile Matrix matrix;
+
+    /**
+     * Rebuilds the matrix from the role, category package and role-category-package tables.
+     */
+    public void refresh() {
+        List<Role> roles = roleRepository.findAll();
+        List<CategoryPackage> categoryPackages = categoryPackageRepository.findAll();
+        List<RoleCategoryPackage> roleCategoryPackages = roleCategoryPackageRepository.findAll();
+
+        int[] roleIds = roles.stream().mapToInt(Role::getId).sorted().toArray();
+
+        Map<Integer, Integer> packageLimits = new HashMap<>();
+        categoryPackages.forEach(categoryPackage -> packageLimits.put(categoryPackage.getId(), categoryPackage.getExpenseLimit()));
+
+        List<Map<Integer, Integer>> packageLimitsByRole = new ArrayList<>();
+        List<Map<Integer, Integer>> categoryLimitsByRole = new ArrayList<>();
+        for (int i = 0; i < roleIds.length; i++) {
+            packageLimitsByRole.add(new HashMap<>());
+            categoryLimitsByRole.add(new HashMap<>());
+        }
+        for (RoleCategoryPackage rcp : roleCategoryPackages) {
+            int roleIndex = Arrays.binarySearch(roleIds, rcp.getRole().getId());
+            if (roleIndex < 0) {
+                continue;  // Role deleted since it was read
+            }
+            CategoryPackage categoryPackage = rcp.getCategoryPackage();
+            packageLimitsByRole.get(roleIndex).put(categoryPackage.getId(), categoryPackage.getExpenseLimit());
+            if (categoryPackage.getCategory() != null) {
+                // A role normally has one package per category; if there are several, the highest limit applies
+                categoryLimitsByRole.get(roleIndex).merge(categoryPackage.getCategory().getId(), categoryPackage.getExpenseLimit(), Math::max);
+            }
+        }
+
+        matrix = new Matrix(roleIds, Limits.of(packageLimits),
+                packageLimitsByRole.stream().map(Limits::of).toArray(Limits[]::new),
+                categoryLimitsByRole.stream().map(Limits::of).toArray(Limits[]::new));
+    }
+
+    /**
+     * Drops the matrix when the data it is built from changed. Runs before the other listeners, which may
+     * read limits from the matrix.
+     * @param event The event published by ReferenceDataChangeListener or ReferenceDataCoherence
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (event.affects(ReferenceDataChangedEvent.ROLE, ReferenceDataChangedEvent.CATEGORY,
+                ReferenceDataChangedEvent.CATEGORY_PACKAGE, ReferenceDataChangedEvent.ROLE_CATEGORY_PACKAGE)) {
+            synchronized (this) {
+                matrix = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the expense limit of the package a role has for a category.
+     * @param roleId The role ID
+     * @param categoryId The category ID
+     * @return The limit, or -1 if the role has no package for the category
+     */
+    public int limitForCategory(int roleId, int categoryId) {
+        return current().limitForCategory(roleId, categoryId);
+    }
+
+    /**
+     * Validates a batch of expense items in one pass over the matrix.
+     * @param requests The items to validate
+     * @return One result per item, in request order
+     */
+    public List<ExpenseValidationResult> validateAll(List<ExpenseValidationRequest> requests) {
+        Matrix current = current();
+        List<ExpenseValidationResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            results.add(current.validate(i, requests.get(i)));
+        }
+        return results;
+    }
+
+    private Matrix current() {
+        Matrix current = matrix;
+        if (current == null) {
+            synchronized (this) {
+                if (matrix == null) {
+                    refresh();
+                }
+                current = matrix;
+            }
+        }
+        return current;
+    }
+
+    // Immutable snapshot of the limits; roleIds is sorted and indexes the per-role tables
+    private record Matrix(int[] roleIds, Limits packageLimits, Limits[] packageLimitsByRole, Limits[] categoryLimitsByRole) {
+
+        int limitForCategory(int roleId, int categoryId) {
+            int roleIndex = roleIndex(roleId);
+            return roleIndex < 0 ? NO_LIMIT : categoryLimitsByRole[roleIndex].get(categoryId);
+        }
+
+        // Index of the role in roleIds, or a negative number if there is no such role
+        int roleIndex(long roleId) {
+            return roleId == (int) roleId ? Arrays.binarySearch(roleIds, (int) roleId) : -1;
+        }
+
+        ExpenseValidationResult validate(int index, ExpenseValidationRequest request) {
+            if (request == null) {
+                return new ExpenseValidationResult(index, false, "Validation item is missing.", null);
+            }
+            if (request.getRoleId() == null) {
+                return new ExpenseValidationResult(index, false, "Role ID is required.", null);
+            }
+            if (request.getCategoryPackageId() == null) {
+                return new ExpenseValidationResult(index, false, "Category Package ID is required.", null);
+            }
+            if (request.getExpenseAmount() == null) {
+                return new ExpenseValidationResult(index, false, "Expense amount is required.", null);
+            }
+
+            long roleId = request.getRoleId();
+            long packageId = request.getCategoryPackageId();
+            int roleIndex = roleIndex(roleId);
+            if (roleIndex < 0) {
+                return new ExpenseValidationResult(index, false, "Role not found for ID: " + roleId, null);
+            }
+            if (packageLimits.get(packageId) == NO_LIMIT) {
+                return new ExpenseValidationResult(index, false, "Category Package not found for ID: " + packageId, null);
+            }
+
+            int limit = packageLimitsByRole[roleIndex].get(packageId);
+            if (limit == NO_LIMIT) {
+                return new ExpenseValidationResult(index, false, "Role is not associated with this Category Package.", null);
+            }
+            if (request.getExpenseAmount() > limit) {
+                return new ExpenseValidationResult(index, false, "Expense amount exceeds the limit of " + limit + ".", limit);
+            }
+            return new ExpenseValidationResult(index, true, null, limit);
+        }
+    }
+
+    // Limits by ID, as parallel arrays sorted by ID; a lookup is a binary search
+    private record Limits(int[] ids, int[] limits) {
+
+        static Limits of(Map<Integer, Integer> limitsById) {
+            int[] ids = limitsById.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            int[] limits = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                limits[i] = limitsById.get(ids[i]);
+            }
+            return new Limits(ids, limits);
+        }
+
+        int get(long id) {
+            if (id != (int) id) {
+                return NO_LIMIT;
+            }
+            int i = Arrays.binarySearch(ids, (int) id);
+            return i < 0 ? NO_LIMIT : limits[i];
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.ExpenseEvent;
+import com.example.expensereimbursement.repository.ExpenseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * In-process inverted index over expense descriptions.
+ * Terms are kept in a sorted map so prefix queries ("conf*") are a range scan, and each term points to a
+ * postings list of expense IDs with term frequencies. Status, category and submit date are kept per expense
+ * so filters are applied without going back to the database.
+ */
+@Component
+public class ExpenseSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseSearchIndex.class);
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    // Number of expense IDs loaded per chunk while building the index
+    @Value("${expense.search.build-chunk-size:50000}")
+    private int buildChunkSize;
+
+    // Number of chunks loaded and tokenized in parallel while building the index
+    @Value("${expense.search.build-parallelism:0}")
+    private int buildParallelism;
+
+    private final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentHashMap<Integer, Document> documents = new ConcurrentHashMap<>();
+
+    // Status changes published while a rebuild is running, by expense ID; a chunk may have read the row before the
+    // change committed, so they are applied again once every chunk is loaded
+    private final Map<Integer, Integer> statusChangedDuringRebuild = new HashMap<>();
+
+    private boolean rebuilding; // Guarded by statusChangedDuringRebuild
+
+    private volatile boolean ready;
+
+    /**
+     * Builds the index from the expense table once the application has started.
+     * Each shard's table is split into ID ranges that are loaded and tokenized in parallel.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Chunks as {shard, first ID after which the chunk starts}; each shard's IDs start after its range start
+        List<int[]> chunks = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            int rangeStart = shardRouter.getIdRangeStart(shard);
+            int maxId = shardRouter.onShard(shard, () -> expenseRepository.findMaxId());
+            for (long fromId = rangeStart; fromId < maxId; fromId += buildChunkSize) {
+                chunks.add(new int[]{shard, (int) fromId});
+            }
+        }
+        int parallelism = buildParallelism > 0 ? buildParallelism : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        synchronized (statusChangedDuringRebuild) {
+            rebuilding = true;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> chunks.parallelStream().forEach(chunk -> {
+                int fromId = chunk[1];
+                int toId = (int) Math.min((long) fromId + buildChunkSize, Integer.MAX_VALUE);
+                List<Object[]> rows = shardRouter.onShard(chunk[0], () -> expenseRepository.findSearchRowsByIdRange(fromId, toId));
+                for (Object[] row : rows) {
+                    index((Integer) row[0], (String) row[1], toInt(row[2]), toInt(row[3]), (LocalDateTime) row[4]);
+                }
+            })).join();
+        } finally {
+            pool.shutdown();
+            synchronized (statusChangedDuringRebuild) {
+                statusChangedDuringRebuild.forEach(this::updateStatus);
+                statusChangedDuringRebuild.clear();
+                rebuilding = false;
+            }
+        }
+        ready = true;
+
+        logger.info("Expense search index built: {} expenses, {} terms in {} ms", documents.size(), terms.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Keeps the index current: new submissions are indexed, status changes update the status filter.
+     * @param event The event published by ExpenseService
+     */
+    @EventListener
+    public void onExpenseEvent(ExpenseEvent event) {
+        if (event.getType() == ExpenseEvent.Type.SUBMITTED) {
+            index(event.getExpenseId(), event.getDescription(), event.getStatusId(), event.getCategoryId(), event.getSubmitDate());
+        } else {
+            synchronized (statusChangedDuringRebuild) {
+                if (rebuilding) {
+                    statusChangedDuringRebuild.put(event.getExpenseId(), event.getStatusId());
+                }
+                updateStatus(event.getExpenseId(), event.getStatusId());
+            }
+        }
+    }
+
+    /**
+     * Searches the index. Every keyword must match; a keyword ending in '*' matches any term with that prefix.
+     * Results are ranked by tf-idf, newest expense first on ties.
+     * @param query The keywords to search for
+     * @param statusId The status ID to filter on, or null for any status
+     * @param categoryId The category ID to filter on, or null for any category
+     * @param from The earliest submit date, or null
+     * @param to The latest submit date, or null
+     * @param limit The maximum number of IDs to return
+     * @return Matching expense IDs, best match first
+     */
+    public List<Integer> search(String query, Integer statusId, Integer categoryId, LocalDateTime from, LocalDateTime to, int limit) {
+        List<Map<Integer, Double>> termMatches = new ArrayList<>();
+        for (String keyword : parseQuery(query)) {
+            termMatches.add(match(keyword));
+        }
+        if (termMatches.isEmpty()) {
+            return List.of();
+        }
+
+        // Intersect starting from the rarest keyword so the candidate set stays small
+        termMatches.sort(Comparator.comparingInt(Map::size));
+        Map<Integer, Double> scores = new HashMap<>(termMatches.get(0));
+        for (int i = 1; i < termMatches.size() && !scores.isEmpty(); i++) {
+            Map<Integer, Double> next = termMatches.get(i);
+            scores.keySet().retainAll(next.keySet());
+            scores.replaceAll((id, score) -> score + next.get(id));
+        }
+
+        Comparator<Map.Entry<Integer, Double>> ranking = Map.Entry.<Integer, Double>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(ranking);
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            Document document = documents.get(entry.getKey());
+            if (document == null || !document.matches(statusId, categoryId, from, to)) {
+                continue;
+            }
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        Integer[] ranked = new Integer[top.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = top.poll().getKey();
+        }
+        return Arrays.asList(ranked);
+    }
+
+    /**
+     * @return true once the startup build has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Adds one expense; expenses already indexed (e.g. submitted while the index was being built) are skipped
+    private void index(int expenseId, String description, int statusId, int categoryId, LocalDateTime submitDate) {
+        if (documents.putIfAbsent(expenseId, new Document(statusId, categoryId, submitDate)) != null) {
+            return;
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(description)) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        frequencies.forEach((token, frequency) ->
+                terms.computeIfAbsent(token, t -> new Postings()).add(expenseId, frequency));
+    }
+
+    // Updates the status filter of an indexed expense
+    private void updateStatus(int expenseId, int statusId) {
+        documents.computeIfPresent(expenseId, (id, document) -> new Document(statusId, document.categoryId, document.submitDate));
+    }
+
+    // Scores all expenses matching one keyword, summing over the terms a prefix expands to
+    private Map<Integer, Double> match(String keyword) {
+        Map<String, Postings> matching;
+        if (keyword.endsWith("*")) {
+            String prefix = keyword.substring(0, keyword.length() - 1);
+            ConcurrentNavigableMap<String, Postings> range = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            matching = range;
+        } else {
+            Postings postings = terms.get(keyword);
+            matching = postings == null ? Map.of() : Map.of(keyword, postings);
+        }
+
+        double documentCount = Math.max(documents.size(), 1);
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Postings postings : matching.values()) {
+            postings.forEach((expenseId, frequency, documentFrequency) -> {
+                double idf = Math.log(1 + documentCount / documentFrequency);
+                scores.merge(expenseId, frequency * idf, Double::sum);
+            });
+        }
+        return scores;
+    }
+
+    // Splits the query into lower-case keywords, keeping a trailing '*' for prefix keywords
+    private static Set<String> parseQuery(String query) {
+        Set<String> keywords = new LinkedHashSet<>();
+        if (query == null) {
+            return keywords;
+        }
+        for (String part : query.toLowerCase(Locale.ROOT).split("\\s+")) {
+            boolean prefix = part.endsWith("*");
+            List<String> tokens = tokenize(part);
+            for (int i = 0; i < tokens.size(); i++) {
+                keywords.add(prefix && i == tokens.size() - 1 ? tokens.get(i) + "*" : tokens.get(i));
+            }
+        }
+        return keywords;
+    }
+
+    // Lower-cases the text and splits it on anything that is not a letter or digit
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static int toInt(Object value) {
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    // Filterable attributes of an indexed expense
+    private record Document(int statusId, int categoryId, LocalDateTime submitDate) {
+
+        boolean matches(Integer statusId, Integer categoryId, LocalDateTime from, LocalDateTime to) {
+            if (statusId != null && this.statusId != statusId) {
+                return false;
+            }
+            if (categoryId != null && this.categoryId != categoryId) {
+                return false;
+            }
+            if (from != null && (submitDate == null || submitDate.isBefore(from))) {
+                return false;
+            }
+            return to == null || (submitDate != null && !submitDate.isAfter(to));
+        }
+    }
+
+    // Append-only postings list of (expense ID, term frequency) pairs stored in primitive arrays
+    private static final class Postings {
+        private int[] expenseIds = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        synchronized void add(int expenseId, int frequency) {
+            if (size == expenseIds.length) {
+                expenseIds = Arrays.copyOf(expenseIds, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            expenseIds[size] = expenseId;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        void forEach(PostingConsumer consumer) {
+            int[] ids;
+            int[] freqs;
+            int count;
+            synchronized (this) {
+                ids = expenseIds;
+                freqs = frequencies;
+                count = size;
+            }
+            for (int i = 0; i < count; i++) {
+                consumer.accept(ids[i], freqs[i], count);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface PostingConsumer {
+        void accept(int expenseId, int frequency, int documentFrequency);
+    }
+}
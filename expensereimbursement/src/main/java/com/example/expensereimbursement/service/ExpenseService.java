@@ -3,10 +3,18 @@ package com.example.expensereimbursement.service;
 import com.example.expensereimbursement.model.*;
 import com.example.expensereimbursement.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +45,65 @@ public class ExpenseService {
     @Autowired
     private RoleCategoryPackageRepository roleCategoryPackageRepository;
 
+    @Autowired
+    private ExpenseSearchIndex expenseSearchIndex;
+
+    @Autowired
+    private ExpenseEventBroadcaster expenseEventBroadcaster;
+
+    @Autowired
+    private ExpenseHistoryCache expenseHistoryCache;
+
+    @Autowired
+    private ExpensePolicyMatrix expensePolicyMatrix;
+
+    @Autowired
+    private AutoApprovalEngine autoApprovalEngine;
+
+    @Autowired
+    private ExpenseAuditJournal expenseAuditJournal;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private ReceiptStorage receiptStorage;
+
+    @Autowired
+    private ApprovalWorkQueue approvalWorkQueue;
+
+    @Autowired
+    private ExpenseFieldProjection expenseFieldProjection;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ReferenceDataCoherence referenceDataCoherence;
+
+    @Autowired
+    private PayrollOutboxRepository payrollOutboxRepository;
+
+    @Autowired
+    private PayrollOutboxDispatcher payrollOutboxDispatcher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RoleSpendReport roleSpendReport;
+
+    // Status ID of expenses waiting for a decision
+    private static final int PENDING_STATUS_ID = 1;
+
+    // Merge order of scatter-gather queries; each shard returns its rows in this order
+    private static final Comparator<Expense> NEWEST_FIRST =
+            Comparator.comparing(Expense::getSubmitDate, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    // Publishes ExpenseEvents to the search index, the event stream and other listeners
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Fetches all roles from the database.
      * @return List of all roles
@@ -70,7 +137,7 @@ public class ExpenseService {
     }
 
     /**
-     * Fetches all expenses with a "Pending" status (assuming ID 1 is for "Pending").
+     * Fetches all expenses with a "Pending" status (assuming ID 1 is for "Pending"), newest first.
      * @return List of expenses with "Pending" status
      */
     public List<Expense> getAllExpenses() {
@@ -78,7 +145,73 @@ public class ExpenseService {
         if (pendingStatus.isEmpty()) {
             return List.of(); // Return empty list if "Pending" status not found
         }
-        return expenseRepository.findByStatus(pendingStatus.get());
+        // Pending expenses of all employees: query every shard and merge on submitDate
+        return shardRouter.scatterGather(() -> expenseRepository.findByStatusOrderBySubmitDateDesc(pendingStatus.get()), NEWEST_FIRST);
+    }
+
+    /**
+     * Fetches pending expenses with only the requested fields, e.g. "id,amount,category.name,status.name".
+     * @param fields Comma-separated field list
+     * @return One map per pending expense holding the requested fields
+     */
+    public List<Map<String, Object>> getAllExpenses(String fields) {
+        List<String> selected = expenseFieldProjection.parse(fields);
+        return expenseFieldProjection.find(selected,
+                (builder, expense) -> builder.equal(expense.get("status").get("id"), 1), true);
+    }
+
+    /**
+     * Lists the head of the approval work queue without claiming anything.
+     * @param partition The role or category ID (depending on expense.work-queue.partition-by), or null for all
+     * @param limit The maximum number of items
+     * @return Pending expenses in priority order
+     */
+    public List<ApprovalQueueItem> getApprovalQueue(Integer partition, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Error: The limit must be greater than zero.");
+        }
+        return approvalWorkQueue.peek(partition, limit);
+    }
+
+    /**
+     * Claims the top unclaimed pending expenses for a manager, who holds a lease on them until they are decided,
+     * released or the lease expires.
+     * @param managerId The employee ID of the manager
+     * @param partition The role or category ID to claim from, or null for all
+     * @param limit The maximum number of items to claim
+     * @return The claimed items in priority order
+     */
+    public List<ApprovalQueueItem> claimApprovalQueueItems(int managerId, Integer partition, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Error: The limit must be greater than zero.");
+        }
+        if (!employeeRepository.existsById(managerId)) {
+            throw new IllegalArgumentException("Error: No employee with this ID exists.");
+        }
+        return approvalWorkQueue.claim(partition, managerId, limit);
+    }
+
+    /**
+     * Releases a manager's lease on a pending expense so other managers can claim it.
+     * @param expenseId The ID of the expense
+     * @param managerId The employee ID of the manager
+     * @return A string message indicating success or error
+     */
+    public String releaseApprovalQueueItem(int expenseId, int managerId) {
+        if (!approvalWorkQueue.release(expenseId, managerId)) {
+            return "Error: This manager does not hold a claim on the expense.";
+        }
+        return "Claim released successfully!";
+    }
+
+    /**
+     * @return How the approval work queue is partitioned and the number of pending expenses per partition
+     */
+    public Map<String, Object> getApprovalQueuePartitions() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("partitionBy", approvalWorkQueue.getPartitionBy());
+        result.put("sizes", approvalWorkQueue.getPartitionSizes());
+        return result;
     }
 
     /**
@@ -118,24 +251,54 @@ public class ExpenseService {
             return "Error: Could not set expense status to pending.";
         }
 
+        // Use the validated entities rather than the ID-only references from the request body
+        expense.setEmployee(employee);
+        expense.setCategory(category);
         expense.setStatus(pendingStatus.get());
         expense.setSubmitDate(LocalDateTime.now());
         expense.setApprovalDate(null); // Approval date not set initially
 
-        // Save expense to repository
-        expenseRepository.save(expense);
+        // Save expense to the shard of its employee; an ID outside the shard's range fails the insert and is rolled back
+        int shard = shardRouter.shardForEmployee(employee.getId());
+        shardRouter.onShard(shard, () -> transactionTemplate.execute(transaction -> {
+            expenseRepository.save(expense);
+            shardRouter.checkExpenseIdRange(shard, expense.getId());
+            return null;
+        }));
+
+        // Notify listeners (search index, event stream, ...) of the new submission
+        eventPublisher.publishEvent(new ExpenseEvent(ExpenseEvent.Type.SUBMITTED, expense, 0, employee.getId()));
         return "Expense submitted successfully!";
     }
 
     /**
-     * Updates the status of an existing expense (by a manager).
+     * Updates the status of an existing expense without naming the manager; fails while a manager holds a claim on it.
      * @param expenseId The ID of the expense to update
      * @param statusId The new status ID (2 for Approved, 3 for Rejected)
      * @return A string message indicating success or error
      */
     public String updateExpenseStatus(int expenseId, int statusId) {
+        return updateExpenseStatus(expenseId, statusId, null);
+    }
+
+    /**
+     * Updates the status of an existing expense (by a manager).
+     * While a manager holds a claim on the expense in the approval work queue, only that manager can decide it.
+     * @param expenseId The ID of the expense to update
+     * @param statusId The new status ID (2 for Approved, 3 for Rejected)
+     * @param managerId The employee ID of the deciding manager, or null if not given
+     * @return A string message indicating success or error
+     */
+    public String updateExpenseStatus(int expenseId, int statusId, Integer managerId) {
+        int shard;
+        try {
+            shard = shardRouter.shardForExpense(expenseId);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+
         // Validate the existence of the expense
-        Optional<Expense> optionalExpense = expenseRepository.findById(expenseId);
+        Optional<Expense> optionalExpense = shardRouter.onShard(shard, () -> expenseRepository.findById(expenseId));
         if (optionalExpense.isEmpty()) {
             return "Error: Expense not found.";
         }
@@ -154,20 +317,147 @@ public class ExpenseService {
         }
 
         ExpenseStatus status = optionalStatus.get();
+        int previousStatusId = expense.getStatus() != null ? expense.getStatus().getId() : 0;
 
-        // Update expense status
-        expense.setStatus(status);
+        // Only pending expenses can be decided
+        if (previousStatusId != PENDING_STATUS_ID) {
+            return "Error: Expense has already been approved or rejected.";
+        }
 
-        // Set approval date if status is "Approved" or "Rejected"
-        if (statusId == 2 || statusId == 3) {
-            expense.setApprovalDate(LocalDateTime.now());
+        // Another manager's claim on the expense must be released or expire first
+        if (!approvalWorkQueue.beginDecision(expenseId, managerId)) {
+            return "Error: The expense is claimed by another manager.";
+        }
+        try {
+            return applyExpenseStatus(shard, expense, status, previousStatusId, managerId);
+        } finally {
+            approvalWorkQueue.finishDecision(expenseId);
         }
+    }
 
-        // Save the updated expense
-        expenseRepository.save(expense);
+    // Applies a manager's decision to a pending expense and notifies listeners
+    private String applyExpenseStatus(int shard, Expense expense, ExpenseStatus status, int previousStatusId, Integer managerId) {
+        int expenseId = expense.getId();
+        int statusId = status.getId();
+
+        // Set the approval date when the expense is approved or rejected
+        LocalDateTime approvalDate = LocalDateTime.now();
+
+        // Update the status only if the expense is still pending when the update runs: another manager or the
+        // auto-approval job may have decided it since it was read. An approval also queues the expense for payroll
+        // in the same transaction
+        int updated = shardRouter.onShard(shard, () -> transactionTemplate.execute(transaction -> {
+            int rows = expenseRepository.updateStatusIfCurrent(expenseId, PENDING_STATUS_ID, status, approvalDate);
+            if (rows == 1 && statusId == 2) {
+                expense.setApprovalDate(approvalDate);
+                payrollOutboxRepository.save(new PayrollOutboxEntry(expense));
+            }
+            return rows;
+        }));
+        if (updated != 1) {
+            return "Error: Expense has already been approved or rejected.";
+        }
+        expense.setStatus(status);
+        expense.setApprovalDate(approvalDate);
+
+        // Notify listeners (search index, event stream, ...) of the status change
+        ExpenseEvent.Type type = statusId == 2 ? ExpenseEvent.Type.APPROVED : ExpenseEvent.Type.REJECTED;
+        int actorId = managerId != null ? managerId : ExpenseEvent.UNKNOWN_ACTOR;
+        eventPublisher.publishEvent(new ExpenseEvent(type, expense, previousStatusId, actorId));
         return "Expense status updated successfully!";
     }
 
+    /**
+     * Replays the submission and status transitions of an expense from the audit journal.
+     * @param expenseId The ID of the expense
+     * @return The journaled records, oldest first
+     */
+    public List<ExpenseAuditRecord> getExpenseAuditTrail(int expenseId) {
+        return expenseAuditJournal.history(expenseId);
+    }
+
+    /**
+     * Stores a receipt for an expense. The content is streamed to the receipt store; identical files are stored once.
+     * @param expenseId The ID of the expense the receipt belongs to
+     * @param fileName The original file name
+     * @param contentType The content type of the upload, or null
+     * @param content The upload body
+     * @return The saved receipt metadata
+     */
+    public Receipt addReceipt(int expenseId, String fileName, String contentType, InputStream content) throws IOException {
+        int shard = shardRouter.shardForExpense(expenseId);
+
+        // Validate the existence of the expense
+        Optional<Expense> optionalExpense = shardRouter.onShard(shard, () -> expenseRepository.findById(expenseId));
+        if (optionalExpense.isEmpty()) {
+            throw new IllegalArgumentException("Error: Expense not found.");
+        }
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("Error: A file name is required.");
+        }
+
+        ReceiptStorage.StoredContent stored = receiptStorage.store(content);
+
+        Receipt receipt = new Receipt();
+        receipt.setExpense(optionalExpense.get());
+        receipt.setFileName(fileName.trim());
+        receipt.setContentType(contentType);
+        receipt.setContentHash(stored.hash());
+        receipt.setSize(stored.size());
+        receipt.setUploadDate(LocalDateTime.now());
+        // Receipts are stored on the shard of their expense
+        return shardRouter.onShard(shard, () -> receiptRepository.save(receipt));
+    }
+
+    /**
+     * Lists the receipts attached to an expense.
+     * @param expenseId The ID of the expense
+     * @return The receipts, oldest first
+     */
+    public List<Receipt> getReceipts(int expenseId) {
+        return shardRouter.onShard(shardRouter.shardForExpense(expenseId), () -> {
+            Optional<Expense> optionalExpense = expenseRepository.findById(expenseId);
+            if (optionalExpense.isEmpty()) {
+                throw new IllegalArgumentException("Error: Expense not found.");
+            }
+            return receiptRepository.findByExpenseOrderByUploadDateAsc(optionalExpense.get());
+        });
+    }
+
+    /**
+     * Fetches one receipt of an expense.
+     * @param expenseId The ID of the expense
+     * @param receiptId The ID of the receipt
+     * @return The receipt metadata
+     */
+    public Receipt getReceipt(int expenseId, int receiptId) {
+        Optional<Receipt> optionalReceipt = shardRouter.onShard(shardRouter.shardForExpense(expenseId),
+                () -> receiptRepository.findById(receiptId));
+        if (optionalReceipt.isEmpty() || optionalReceipt.get().getExpense().getId() != expenseId) {
+            throw new IllegalArgumentException("Error: Receipt not found.");
+        }
+        return optionalReceipt.get();
+    }
+
+    /**
+     * @param receipt The receipt
+     * @return The path of the receipt's content in the receipt store
+     */
+    public Path getReceiptPath(Receipt receipt) {
+        return receiptStorage.path(receipt.getContentHash());
+    }
+
+    /**
+     * Sends a byte range of a receipt's content to the target channel without copying it through the heap.
+     * @param receipt The receipt
+     * @param start The first byte to send
+     * @param length The number of bytes to send
+     * @param target The channel to write to
+     */
+    public void transferReceipt(Receipt receipt, long start, long length, WritableByteChannel target) throws IOException {
+        receiptStorage.transfer(receipt.getContentHash(), start, length, target);
+    }
+
     /**
      * Retrieves expenses for a specific employee within a given date range.
      * @param employeeId The ID of the employee
@@ -186,17 +476,94 @@ public class ExpenseService {
             return List.of(); // Return an empty list if employee is not found
         }
 
-        // Retrieve the expenses for the employee within the date range
-        return expenseRepository.findByEmployeeAndSubmitDateBetween(employee.get(), startDateTime, endDateTime);
+        // Retrieve the expenses for the employee within the date range from the employee's shard
+        return shardRouter.onShard(shardRouter.shardForEmployee(employeeId),
+                () -> expenseRepository.findByEmployeeAndSubmitDateBetween(employee.get(), startDateTime, endDateTime));
+    }
+
+    /**
+     * Fetches an employee's expenses within a date range with only the requested fields.
+     * @param employeeId The ID of the employee
+     * @param startDate The start of the date range
+     * @param endDate The end of the date range
+     * @param fields Comma-separated field list
+     * @return One map per expense holding the requested fields
+     */
+    public List<Map<String, Object>> getExpensesByEmployeeAndDateRange(int employeeId, LocalDate startDate, LocalDate endDate, String fields) {
+        List<String> selected = expenseFieldProjection.parse(fields);
+        if (!employeeRepository.existsById(employeeId)) {
+            return List.of(); // Return an empty list if employee is not found
+        }
+        LocalDateTime startDateTime = startDate.atStartOfDay(); // 12 AM
+        LocalDateTime endDateTime = endDate.atTime(23, 59, 59); // 11:59 PM
+        return expenseFieldProjection.findOnShard(shardRouter.shardForEmployee(employeeId), selected, (builder, expense) -> builder.and(
+                builder.equal(expense.get("employee").get("id"), employeeId),
+                builder.between(expense.get("submitDate"), startDateTime, endDateTime)), false);
     }
 
     /**
      * Retrieves expenses by status and category name. If no category is provided, returns all expenses for the status.
+     * Results are served from ExpenseHistoryCache, which is invalidated by submissions and status changes.
      * @param statusId The status ID to filter expenses
      * @param categoryName The category name to filter expenses, or null to return all categories
      * @return List of expenses filtered by status and category
      */
     public List<Expense> getExpensesByStatusAndCategory(int statusId, String categoryName) {
+        return expenseHistoryCache.get(statusId, categoryName, () -> loadExpensesByStatusAndCategory(statusId, categoryName));
+    }
+
+    /**
+     * Retrieves expenses by status and category name with only the requested fields, newest first.
+     * Sparse results are not cached: they are cheap to query and would multiply the cache keys.
+     * @param statusId The status ID to filter expenses
+     * @param categoryName The category name to filter expenses, or null to return all categories
+     * @param fields Comma-separated field list
+     * @return One map per expense holding the requested fields
+     */
+    public List<Map<String, Object>> getExpensesByStatusAndCategory(int statusId, String categoryName, String fields) {
+        List<String> selected = expenseFieldProjection.parse(fields);
+        if (!expenseStatusRepository.existsById(statusId)) {
+            throw new IllegalArgumentException("Error: Invalid status ID provided.");
+        }
+        if (categoryName == null || categoryName.isEmpty()) {
+            return expenseFieldProjection.find(selected,
+                    (builder, expense) -> builder.equal(expense.get("status").get("id"), statusId), true);
+        }
+        Category category = categoryRepository.findByName(categoryName);
+        if (category == null) {
+            throw new IllegalArgumentException("Error: Category not found with the name: " + categoryName);
+        }
+        return expenseFieldProjection.find(selected, (builder, expense) -> builder.and(
+                builder.equal(expense.get("status").get("id"), statusId),
+                builder.equal(expense.get("category").get("id"), category.getId())), true);
+    }
+
+    /**
+     * Returns the statistics of the status/category history cache.
+     * @return Cache statistics (hits, misses, evictions, ...)
+     */
+    public Map<String, Object> getHistoryCacheStatistics() {
+        return expenseHistoryCache.getStatistics();
+    }
+
+    /**
+     * Returns the statistics of the reference data change polling.
+     * @return Poll interval (the staleness bound across instances), poll counts and the versions seen
+     */
+    public Map<String, Object> getReferenceDataCoherenceStatistics() {
+        return referenceDataCoherence.getStatistics();
+    }
+
+    /**
+     * Returns the statistics of the payroll outbox dispatcher.
+     * @return Undelivered entries and the age of the oldest one, throughput and failure counts
+     */
+    public Map<String, Object> getPayrollOutboxStatistics() {
+        return payrollOutboxDispatcher.getStatistics();
+    }
+
+    // Runs the status/category history query against the database
+    private List<Expense> loadExpensesByStatusAndCategory(int statusId, String categoryName) {
         // Fetch the status by ID
         Optional<ExpenseStatus> optionalStatus = expenseStatusRepository.findById(statusId);
         if (optionalStatus.isEmpty()) {
@@ -206,8 +573,9 @@ public class ExpenseService {
         ExpenseStatus status = optionalStatus.get();
 
         // If no categoryName is provided, return all expenses for the given status, sorted by submitDate descending
+        // (queried on every shard and merged)
         if (categoryName == null || categoryName.isEmpty()) {
-            return expenseRepository.findByStatusOrderBySubmitDateDesc(status);
+            return shardRouter.scatterGather(() -> expenseRepository.findByStatusOrderBySubmitDateDesc(status), NEWEST_FIRST);
         }
 
         // Find the category by name using CategoryRepository
@@ -217,7 +585,68 @@ public class ExpenseService {
         }
 
         // Fetch and return expenses with the given status and category, sorted by submitDate descending
-        return expenseRepository.findByStatusAndCategoryOrderBySubmitDateDesc(status, category);
+        return shardRouter.scatterGather(() -> expenseRepository.findByStatusAndCategoryOrderBySubmitDateDesc(status, category), NEWEST_FIRST);
+    }
+
+    /**
+     * Searches expense descriptions by keyword, optionally filtered by status, category and submit date range.
+     * @param query The keywords to search for; a keyword ending in '*' is treated as a prefix
+     * @param statusId The status ID to filter on, or null for any status
+     * @param categoryName The category name to filter on, or null for any category
+     * @param startDate The start of the submit date range, or null
+     * @param endDate The end of the submit date range, or null
+     * @param limit The maximum number of results
+     * @return IDs of the matching expenses, best match first
+     */
+    public List<Integer> searchExpenses(String query, Integer statusId, String categoryName,
+                                        LocalDate startDate, LocalDate endDate, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Error: A search query is required.");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Error: The limit must be greater than zero.");
+        }
+
+        // Resolve the category name to its ID, as the index filters on IDs
+        Integer categoryId = null;
+        if (categoryName != null && !categoryName.isEmpty()) {
+            Category category = categoryRepository.findByName(categoryName);
+            if (category == null) {
+                throw new IllegalArgumentException("Error: Category not found with the name: " + categoryName);
+            }
+            categoryId = category.getId();
+        }
+
+        LocalDateTime from = startDate != null ? startDate.atStartOfDay() : null; // 12 AM
+        LocalDateTime to = endDate != null ? endDate.atTime(23, 59, 59) : null;   // 11:59 PM
+
+        return expenseSearchIndex.search(query, statusId, categoryId, from, to, limit);
+    }
+
+    /**
+     * @return true once the expense search index has been built
+     */
+    public boolean isSearchIndexReady() {
+        return expenseSearchIndex.isReady();
+    }
+
+    /**
+     * Returns the configuration and throughput of the scheduled auto-approval job.
+     * @return Active rules, last run statistics and totals
+     */
+    public Map<String, Object> getAutoApprovalStatistics() {
+        return autoApprovalEngine.getStatistics();
+    }
+
+    /**
+     * Subscribes to the stream of expense events (submitted, approved, rejected).
+     * Clients subscribe, load the pending list once via getAllExpenses after the CONNECTED event, and apply the
+     * events to it instead of polling.
+     * @param lastEventId The ID of the last event the client received, or null for a fresh subscription
+     * @return The emitter streaming the events
+     */
+    public SseEmitter subscribeToExpenseEvents(String lastEventId) {
+        return expenseEventBroadcaster.subscribe(lastEventId);
     }
 
     /**
@@ -277,6 +706,32 @@ public class ExpenseService {
         return request.getExpenseAmount() <= categoryPackage.getExpenseLimit();
     }
 
+    /**
+     * Validates many expense items at once against the in-memory role/category package limit matrix.
+     * Unlike validateExpense, an invalid item does not fail the request; each result carries its own reason.
+     * @param requests The items to validate
+     * @return One result per item, in request order
+     */
+    public List<ExpenseValidationResult> validateExpenses(List<ExpenseValidationRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Error: At least one expense item is required.");
+        }
+        return expensePolicyMatrix.validateAll(requests);
+    }
+
+    /**
+     * Prepares the per-employee, per-category usage report of a role. The queries run here; the rows are built
+     * and written by Report.writeTo. Usage counts approved and pending expenses only, and spend in a category
+     * without a package for the role counts as exceeded; getEmployeeExpenseHistoryByCategory counts rejected
+     * expenses too and leaves such categories out.
+     * @param roleId The role ID, or null for all active roles
+     * @return The report, ready to be written
+     * @throws IllegalArgumentException if the role does not exist or is not active
+     */
+    public RoleSpendReport.Report prepareRoleSpendReport(Integer roleId) {
+        return roleSpendReport.prepare(roleId);
+    }
+
     /**
      * Fetches the expense history for an employee categorized by expense type and limit.
      * @param employeeId The ID of the employee
@@ -307,7 +762,7 @@ public class ExpenseService {
         }
 
         // Fetch all expenses of the employee (including "Pending" expenses)
-        List<Expense> expenses = expenseRepository.findByEmployee(employee);
+        List<Expense> expenses = shardRouter.onShard(shardRouter.shardForEmployee(employeeId), () -> expenseRepository.findByEmployee(employee));
         Map<String, Integer> categoryTotalExpenses = new HashMap<>();
 
         // Loop through expenses and sum them by category
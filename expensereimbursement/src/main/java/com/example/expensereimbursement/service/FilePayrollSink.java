@@ -0,0 +1,62 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.PayrollOutboxEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Drops each batch as a file of JSON lines into a directory that payroll picks up.
+ * The file is written under a temporary name, forced to disk and then renamed, so payroll never sees a partial
+ * batch. File names start with the first outbox ID of the batch, so listing them in name order keeps the
+ * delivery order.
+ */
+@Component
+@ConditionalOnProperty(name = "expense.payroll.sink", havingValue = "file")
+public class FilePayrollSink implements PayrollSink {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Path directory;
+
+    public FilePayrollSink(@Value("${expense.payroll.file.directory:payroll-outbox}") String directory) throws IOException {
+        this.directory = Path.of(directory);
+        Files.createDirectories(this.directory);
+    }
+
+    @Override
+    public void send(List<PayrollOutboxEntry> batch) throws IOException {
+        PayrollOutboxEntry first = batch.get(0);
+        String name = String.format("%020d-%s.ndjson", first.getId(), first.getMessageId());
+        Path temporary = directory.resolve(name + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            for (PayrollOutboxEntry entry : batch) {
+                out.write(objectMapper.writeValueAsBytes(PayrollSink.toMessage(entry)));
+                out.write('\n');
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+}
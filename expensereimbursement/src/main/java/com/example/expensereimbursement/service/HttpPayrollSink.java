@@ -0,0 +1,65 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.PayrollOutboxEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Posts each batch to the payroll endpoint as one JSON array. Any status other than 2xx fails the batch.
+ */
+@Component
+@ConditionalOnProperty(name = "expense.payroll.sink", havingValue = "http")
+public class HttpPayrollSink implements PayrollSink {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final URI url;
+
+    private final Duration timeout;
+
+    private final HttpClient client;
+
+    public HttpPayrollSink(@Value("${expense.payroll.http.url}") String url,
+                           @Value("${expense.payroll.http.timeout-ms:10000}") long timeoutMs) {
+        this.url = URI.create(url);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public void send(List<PayrollOutboxEntry> batch) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(batch.stream().map(PayrollSink::toMessage).toList());
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        HttpResponse<String> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending to payroll.", e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Payroll responded with HTTP " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "http";
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.PayrollOutboxEntry;
+import com.example.expensereimbursement.repository.PayrollOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the payroll outbox into the configured PayrollSink.
+ * Approvals write their outbox entry in the same transaction as the status change (see ExpenseService and
+ * AutoApprovalEngine), so an approval is never lost and never sent before it commits. Each shard's outbox is read
+ * in ID order in batches. A batch is locked and leased (its next attempt moved to the end of the lease) in a short
+ * transaction, sent with no transaction or row lock held, and its outcome is committed in a second transaction;
+ * dispatchers on several instances skip leased entries instead of sending them too.
+ * Delivery is at-least-once: a batch that payroll accepted just before a crash is sent again once its lease runs
+ * out. When a batch fails, its entries are sent one by one, so a message payroll rejects does not hold back the
+ * rest of the batch; an entry that fails backs off exponentially and is parked after max-attempts attempts.
+ * Entries of an employee are sent in outbox order: while an employee's entry is in flight or waits for its retry,
+ * the employee's later entries wait too. A parked entry no longer holds them back.
+ */
+@Component
+public class PayrollOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayrollOutboxDispatcher.class);
+
+    @Autowired
+    private PayrollOutboxRepository payrollOutboxRepository;
+
+    @Autowired
+    private PayrollSink payrollSink;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${expense.payroll.dispatch.enabled:true}")
+    private boolean enabled;
+
+    // Number of outbox entries sent together
+    @Value("${expense.payroll.dispatch.batch-size:100}")
+    private int batchSize;
+
+    // Wait before the first retry of a failed batch; doubled on every further failure up to the maximum
+    @Value("${expense.payroll.dispatch.backoff-initial-ms:1000}")
+    private long backoffInitialMs;
+
+    @Value("${expense.payroll.dispatch.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    // Attempts after which a failing entry is parked instead of retried
+    @Value("${expense.payroll.dispatch.max-attempts:15}")
+    private int maxAttempts;
+
+    // How long a batch being sent is kept from other dispatchers; must exceed the time to send it and retry its
+    // entries one by one, or another instance sends them as well (payroll drops the duplicates)
+    @Value("${expense.payroll.dispatch.lease-ms:300000}")
+    private long leaseMs;
+
+    // Statistics of the last run that had something to send and totals since start-up
+    private final AtomicLong totalDelivered = new AtomicLong();
+    private final AtomicLong totalBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong totalParked = new AtomicLong();
+    private volatile String lastError;
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    /**
+     * Sends everything that is due, shard by shard, until a batch comes back short or fails.
+     */
+    @Scheduled(fixedDelayString = "${expense.payroll.dispatch.interval-ms:1000}",
+            initialDelayString = "${expense.payroll.dispatch.interval-ms:1000}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Run run = new Run();
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            int delivered;
+            do {
+                delivered = shardRouter.onShard(shard, () -> dispatchBatch(run));
+            } while (delivered == batchSize);
+        }
+        if (run.delivered == 0 && run.failed == 0 && run.parked == 0) {
+            return;
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("finishedAt", LocalDateTime.now());
+        statistics.put("durationMs", elapsedMs);
+        statistics.put("delivered", run.delivered);
+        statistics.put("failedBatches", run.failed);
+        statistics.put("parked", run.parked);
+        statistics.put("deliveredPerSecond", run.delivered * 1000 / elapsedMs);
+        statistics.put("maxDeliveryLagMs", run.maxLagMs);
+        lastRun = statistics;
+    }
+
+    /**
+     * @return Backlog size and age (the dispatcher lag), parked entries, the last run's throughput and totals since start-up
+     */
+    public Map<String, Object> getStatistics() {
+        long pending = 0;
+        for (Long count : shardRouter.scatterGather(() -> List.of(payrollOutboxRepository.countByDispatchedAtIsNullAndParkedAtIsNull()))) {
+            pending += count;
+        }
+        long parked = 0;
+        for (Long count : shardRouter.scatterGather(() -> List.of(payrollOutboxRepository.countByParkedAtIsNotNull()))) {
+            parked += count;
+        }
+        LocalDateTime oldest = null;
+        for (LocalDateTime createdAt : shardRouter.scatterGather(() -> {
+            LocalDateTime shardOldest = payrollOutboxRepository.findOldestUndispatchedCreatedAt();
+            return shardOldest == null ? List.<LocalDateTime>of() : List.of(shardOldest);
+        })) {
+            oldest = oldest == null || createdAt.isBefore(oldest) ? createdAt : oldest;
+        }
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("sink", payrollSink.getName());
+        statistics.put("pending", pending);
+        statistics.put("oldestPendingAgeMs", oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis());
+        statistics.put("parked", parked);
+        statistics.put("totalDelivered", totalDelivered.get());
+        statistics.put("totalBatches", totalBatches.get());
+        statistics.put("failedBatches", failedBatches.get());
+        statistics.put("totalParked", totalParked.get());
+        statistics.put("lastError", lastError);
+        statistics.put("lastRun", lastRun);
+        return statistics;
+    }
+
+    // Sends the oldest due entries of the current shard; returns the number delivered
+    private int dispatchBatch(Run run) {
+        // Claim the batch and commit, so no row lock is held while payroll is called
+        LocalDateTime claimedAt = LocalDateTime.now();
+        List<PayrollOutboxEntry> batch = transactionTemplate.execute(status -> {
+            // Entries backing off are not read at all, so however many there are, they never crowd due ones out of the batch
+            List<PayrollOutboxEntry> due = payrollOutboxRepository.lockDue(claimedAt, PageRequest.of(0, batchSize));
+            LocalDateTime leasedUntil = claimedAt.plus(Duration.ofMillis(leaseMs));
+            for (PayrollOutboxEntry entry : due) {
+                entry.setNextAttemptAt(leasedUntil);
+            }
+            return due;
+        });
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        totalBatches.incrementAndGet();
+        for (PayrollOutboxEntry entry : batch) {
+            entry.setAttempts(entry.getAttempts() + 1);
+        }
+        int delivered;
+        try {
+            payrollSink.send(batch);
+            for (PayrollOutboxEntry entry : batch) {
+                delivered(entry, run);
+            }
+            delivered = batch.size();
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            lastError = e.getMessage();
+            run.failed++;
+            logger.warn("Payroll dispatch of {} entries failed: {}", batch.size(), e.getMessage());
+            if (batch.size() == 1) {
+                failed(batch.get(0), e.getMessage(), run);
+                delivered = 0;
+            } else {
+                // Stop halfway through the lease, so no other dispatcher takes over the entries while they are sent
+                delivered = sendOneByOne(batch, e.getMessage(), claimedAt.plus(Duration.ofMillis(leaseMs / 2)), run);
+            }
+        }
+
+        // Commit the outcome; the entries were read in the claiming transaction, so this merges them back
+        transactionTemplate.executeWithoutResult(status -> payrollOutboxRepository.saveAll(batch));
+        totalDelivered.addAndGet(delivered);
+        run.delivered += delivered;
+        return delivered;
+    }
+
+    // Retries the entries of a failed batch one by one until sendUntil; returns the number delivered
+    private int sendOneByOne(List<PayrollOutboxEntry> batch, String batchError, LocalDateTime sendUntil, Run run) {
+        // Employees with an entry backing off: their later entries keep their outbox order and wait behind it
+        Set<Integer> waiting = new HashSet<>();
+        int delivered = 0;
+        int consecutiveFailures = 0;
+        for (PayrollOutboxEntry entry : batch) {
+            if (waiting.contains(entry.getEmployeeId()) || LocalDateTime.now().isAfter(sendUntil)) {
+                // Due again; lockDue holds it back until an earlier entry of the employee is gone
+                entry.setNextAttemptAt(LocalDateTime.now());
+                continue;
+            }
+            if (consecutiveFailures >= 2) {
+                // Payroll is failing every message, not one of them: the rest backs off without being sent again
+                failed(entry, batchError, run);
+                waiting.add(entry.getEmployeeId());
+                continue;
+            }
+            entry.setAttempts(entry.getAttempts() + 1);
+            try {
+                payrollSink.send(List.of(entry));
+                delivered(entry, run);
+                delivered++;
+                consecutiveFailures = 0;
+            } catch (Exception e) {
+                consecutiveFailures++;
+                if (!failed(entry, e.getMessage(), run)) {
+                    waiting.add(entry.getEmployeeId());
+                }
+            }
+        }
+        return delivered;
+    }
+
+    private void delivered(PayrollOutboxEntry entry, Run run) {
+        LocalDateTime dispatchedAt = LocalDateTime.now();
+        entry.setDispatchedAt(dispatchedAt);
+        entry.setNextAttemptAt(null);
+        entry.setLastError(null);
+        run.maxLagMs = Math.max(run.maxLagMs, Duration.between(entry.getCreatedAt(), dispatchedAt).toMillis());
+    }
+
+    // Schedules the retry of a failed entry, or parks it once it has used up its attempts; returns true if parked
+    private boolean failed(PayrollOutboxEntry entry, String error, Run run) {
+        LocalDateTime now = LocalDateTime.now();
+        entry.setLastError(truncate(error));
+        if (entry.getAttempts() < maxAttempts) {
+            entry.setNextAttemptAt(now.plus(backoff(entry.getAttempts())));
+            return false;
+        }
+        entry.setParkedAt(now);
+        entry.setNextAttemptAt(null);
+        totalParked.incrementAndGet();
+        run.parked++;
+        logger.error("Payroll outbox entry {} (expense {}) parked after {} attempts: {}",
+                entry.getId(), entry.getExpenseId(), entry.getAttempts(), error);
+        return true;
+    }
+
+    // Exponential backoff: initial, 2 x initial, 4 x initial, ... capped at the maximum
+    private Duration backoff(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        return Duration.ofMillis(Math.min(backoffMaxMs, backoffInitialMs << doublings));
+    }
+
+    private static String truncate(String message) {
+        return message == null || message.length() <= 255 ? message : message.substring(0, 255);
+    }
+
+    // Counters of one dispatch run
+    private static final class Run {
+        private long delivered;
+        private long failed;
+        private long parked;
+        private long maxLagMs;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.PayrollOutboxEntry;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Destination of approved expenses (see PayrollOutboxDispatcher).
+ * Exactly one implementation is active, chosen by expense.payroll.sink: http, file or stub.
+ */
+public interface PayrollSink {
+
+    /**
+     * Delivers a batch. The batch counts as delivered only if this returns normally; on an exception its entries
+     * are sent again, alone or in later batches, so the receiver must drop messages whose messageId it has already seen.
+     * @param batch The entries, in outbox order
+     * @throws IOException if the batch could not be delivered
+     */
+    void send(List<PayrollOutboxEntry> batch) throws IOException;
+
+    /**
+     * @return The sink type, for the statistics
+     */
+    String getName();
+
+    /**
+     * @param entry An outbox entry
+     * @return The message sent to payroll for the entry
+     */
+    static Map<String, Object> toMessage(PayrollOutboxEntry entry) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("messageId", entry.getMessageId());
+        message.put("expenseId", entry.getExpenseId());
+        message.put("employeeId", entry.getEmployeeId());
+        message.put("categoryId", entry.getCategoryId());
+        message.put("amount", entry.getAmount());
+        message.put("approvalDate", entry.getApprovalDate());
+        return message;
+    }
+}
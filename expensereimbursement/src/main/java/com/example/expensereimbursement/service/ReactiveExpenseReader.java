@@ -0,0 +1,179 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.*;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking read path for the long-running expense queries.
+ * Queries run over R2DBC on their own small connection pool, next to the JPA/JDBC pool used for writes, and are
+ * returned as a Flux that emits each expense as its row arrives. The subscriber's demand is passed down to the
+ * driver, so a slow client slows the fetch instead of filling memory, and no thread or connection is held while
+ * waiting for either side.
+ * The pool is deliberately not exposed as a ConnectionFactory bean: Spring Boot backs off its JDBC DataSource when
+ * one exists, which would take JPA down with it.
+ * It reads the single database of expense.reactive.url and is not shard-aware, so it (and ReactiveExpenseController)
+ * is left out when sharding is enabled, rather than serving only the expenses of one shard.
+ */
+@Component
+@ConditionalOnProperty(name = "expense.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class ReactiveExpenseReader {
+
+    private static final String SELECT_EXPENSES =
+            "select e.id, e.amount, e.description, e.submit_date, e.approval_date, " +
+            "emp.id as employee_id, emp.name as employee_name, emp.email as employee_email, " +
+            "r.id as role_id, r.name as role_name, r.status as role_status, " +
+            "c.id as category_id, c.name as category_name, c.status as category_status, " +
+            "s.id as status_id, s.name as status_name, s.status as status_status " +
+            "from expense e " +
+            "left join employee emp on emp.id = e.employee_id " +
+            "left join role r on r.id = emp.role_id " +
+            "left join categories c on c.id = e.category_id " +
+            "left join expense_status s on s.id = e.status_id ";
+
+    private final ConnectionPool connectionPool;
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveExpenseReader(@Value("${expense.reactive.url}") String url,
+                                 @Value("${expense.reactive.username:${spring.datasource.username:}}") String username,
+                                 @Value("${expense.reactive.password:${spring.datasource.password:}}") String password,
+                                 @Value("${expense.reactive.pool.max-size:10}") int maxSize,
+                                 @Value("${expense.reactive.pool.max-idle-time-ms:1800000}") long maxIdleTimeMs) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(0)
+                .maxSize(maxSize)
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .build());
+        this.databaseClient = DatabaseClient.create(connectionPool);
+    }
+
+    /**
+     * Streams expenses by status and category name, newest first. If no category is provided, streams all
+     * expenses for the status.
+     * @param statusId The status ID to filter expenses
+     * @param categoryName The category name to filter expenses, or null for all categories
+     * @return The expenses, emitted as they are read; fails with IllegalArgumentException if the status or
+     *         category does not exist
+     */
+    public Flux<Expense> findByStatusAndCategory(int statusId, String categoryName) {
+        Mono<Integer> status = databaseClient.sql("select id from expense_status where id = :statusId")
+                .bind("statusId", statusId)
+                .map(row -> row.get("id", Integer.class))
+                .first()
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Error: Invalid status ID provided.")));
+
+        if (categoryName == null || categoryName.isEmpty()) {
+            return status.flatMapMany(id -> databaseClient.sql(SELECT_EXPENSES +
+                            "where e.status_id = :statusId order by e.submit_date desc")
+                    .bind("statusId", statusId)
+                    .map(ReactiveExpenseReader::toExpense)
+                    .all());
+        }
+
+        Mono<Integer> category = databaseClient.sql("select id from categories where name = :name")
+                .bind("name", categoryName)
+                .map(row -> row.get("id", Integer.class))
+                .first()
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Error: Category not found with the name: " + categoryName)));
+
+        return status.then(category).flatMapMany(categoryId -> databaseClient.sql(SELECT_EXPENSES +
+                        "where e.status_id = :statusId and e.category_id = :categoryId order by e.submit_date desc")
+                .bind("statusId", statusId)
+                .bind("categoryId", categoryId)
+                .map(ReactiveExpenseReader::toExpense)
+                .all());
+    }
+
+    /**
+     * Streams an employee's expenses submitted within a date range (both days inclusive).
+     * @param employeeId The ID of the employee
+     * @param startDate The start of the date range
+     * @param endDate The end of the date range
+     * @return The expenses, emitted as they are read; empty if the employee does not exist
+     */
+    public Flux<Expense> findByEmployeeAndDateRange(int employeeId, LocalDate startDate, LocalDate endDate) {
+        LocalDateTime startDateTime = startDate.atStartOfDay(); // 12 AM
+        LocalDateTime endDateTime = endDate.atTime(23, 59, 59); // 11:59 PM
+        return databaseClient.sql(SELECT_EXPENSES +
+                        "where e.employee_id = :employeeId and e.submit_date between :start and :end")
+                .bind("employeeId", employeeId)
+                .bind("start", startDateTime)
+                .bind("end", endDateTime)
+                .map(ReactiveExpenseReader::toExpense)
+                .all();
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionPool.dispose();
+    }
+
+    // Builds a detached Expense (with its employee, role, category and status) from one joined row
+    private static Expense toExpense(Readable row) {
+        Expense expense = new Expense();
+        expense.setId(row.get("id", Integer.class));
+        expense.setAmount(valueOrZero(row.get("amount", Integer.class)));
+        expense.setDescription(row.get("description", String.class));
+        expense.setSubmitDate(row.get("submit_date", LocalDateTime.class));
+        expense.setApprovalDate(row.get("approval_date", LocalDateTime.class));
+
+        Integer employeeId = row.get("employee_id", Integer.class);
+        if (employeeId != null) {
+            Employee employee = new Employee();
+            employee.setId(employeeId);
+            employee.setName(row.get("employee_name", String.class));
+            employee.setEmail(row.get("employee_email", String.class));
+            Integer roleId = row.get("role_id", Integer.class);
+            if (roleId != null) {
+                Role role = new Role();
+                role.setId(roleId);
+                role.setName(row.get("role_name", String.class));
+                role.setStatus(Boolean.TRUE.equals(row.get("role_status", Boolean.class)));
+                employee.setRole(role);
+            }
+            expense.setEmployee(employee);
+        }
+
+        Integer categoryId = row.get("category_id", Integer.class);
+        if (categoryId != null) {
+            Category category = new Category();
+            category.setId(categoryId);
+            category.setName(row.get("category_name", String.class));
+            category.setStatus(Boolean.TRUE.equals(row.get("category_status", Boolean.class)));
+            expense.setCategory(category);
+        }
+
+        Integer statusId = row.get("status_id", Integer.class);
+        if (statusId != null) {
+            ExpenseStatus status = new ExpenseStatus();
+            status.setId(statusId);
+            status.setName(row.get("status_name", String.class));
+            status.setStatus(Boolean.TRUE.equals(row.get("status_status", Boolean.class)));
+            expense.setStatus(status);
+        }
+        return expense;
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.expensereimbursement.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed file store for receipts.
+ * Uploads are streamed through a small direct buffer into a temporary file while their SHA-256 is computed, then
+ * moved to {root}/{hash[0..2]}/{hash}; if that file already exists the upload is a duplicate and the temporary
+ * file is dropped. Downloads are handed to FileChannel.transferTo, which the OS can serve without copying the
+ * data through the heap.
+ */
+@Component
+public class ReceiptStorage {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+
+    private final long maxSize;
+
+    public ReceiptStorage(@Value("${expense.receipts.directory:receipts}") String root,
+                          @Value("${expense.receipts.max-size:26214400}") long maxSize) {
+        this.root = Paths.get(root);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Streams an upload into the store.
+     * @param content The upload body; it is read to the end but not closed
+     * @return The content hash and size
+     * @throws IllegalArgumentException if the upload is empty or larger than the configured maximum
+     */
+    public StoredContent store(InputStream content) throws IOException {
+        Path temp = Files.createDirectories(root.resolve("tmp"));
+        Path upload = Files.createTempFile(temp, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long size = 0;
+            ReadableByteChannel source = Channels.newChannel(content);
+            try (FileChannel target = FileChannel.open(upload, StandardOpenOption.WRITE)) {
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    if (size > maxSize) {
+                        throw new IllegalArgumentException("Error: Receipt is larger than " + maxSize + " bytes.");
+                    }
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                target.force(false);
+            }
+            if (size == 0) {
+                throw new IllegalArgumentException("Error: Receipt is empty.");
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path stored = path(hash);
+            if (!Files.exists(stored)) {
+                Files.createDirectories(stored.getParent());
+                try {
+                    Files.move(upload, stored, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Stored concurrently by an identical upload
+                }
+            }
+            return new StoredContent(hash, size);
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    /**
+     * @param hash The content hash returned by store
+     * @return The path of the stored content
+     */
+    public Path path(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Copies a byte range of stored content to the target channel with FileChannel.transferTo.
+     * @param hash The content hash
+     * @param position The first byte to send
+     * @param count The number of bytes to send
+     * @param target The channel to write to
+     */
+    public void transfer(String hash, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel source = FileChannel.open(path(hash), StandardOpenOption.READ)) {
+            long sent = 0;
+            while (sent < count) {
+                long transferred = source.transferTo(position + sent, count - sent, target);
+                if (transferred <= 0) {
+                    break; // End of file reached
+                }
+                sent += transferred;
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record StoredContent(String hash, long size) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.ChangeVersion;
+import com.example.expensereimbursement.model.ReferenceDataChangedEvent;
+import com.example.expensereimbursement.repository.ChangeVersionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps in-process copies of reference data coherent across instances without a message broker.
+ * Every instance polls the few rows of change_version; when a version moved since the last poll, the change was
+ * made elsewhere (or by this instance) and a ReferenceDataChangedEvent naming the changed kinds is published.
+ * Other instances therefore see a change after at most expense.coherence.poll-interval-ms plus one poll query.
+ * With sharding enabled only the default shard (shard 0) is polled.
+ */
+@Component
+public class ReferenceDataCoherence {
+
+    @Autowired
+    private ChangeVersionRepository changeVersionRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${expense.coherence.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    // Last version seen per change_version name
+    private final Map<String, Long> seen = new ConcurrentHashMap<>();
+
+    private volatile boolean started;
+
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong changesDetected = new AtomicLong();
+    private volatile Instant lastPollAt;
+
+    /**
+     * Creates the missing change_version rows and records the current versions.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (String name : ReferenceDataChangedEvent.ALL) {
+            if (!changeVersionRepository.existsById(name)) {
+                try {
+                    changeVersionRepository.save(new ChangeVersion(name, 0));
+                } catch (DataIntegrityViolationException e) {
+                    // Created concurrently by another instance
+                }
+            }
+        }
+        poll(false);
+        started = true;
+    }
+
+    /**
+     * Reads change_version and publishes an event for the kinds of reference data whose version moved.
+     */
+    @Scheduled(fixedDelayString = "${expense.coherence.poll-interval-ms:5000}",
+            initialDelayString = "${expense.coherence.poll-interval-ms:5000}")
+    public void poll() {
+        if (started) {
+            poll(true);
+        }
+    }
+
+    /**
+     * @return The poll interval (the staleness bound), versions seen and poll counters
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("pollIntervalMs", pollIntervalMs);
+        statistics.put("polls", polls.get());
+        statistics.put("changesDetected", changesDetected.get());
+        statistics.put("lastPollAt", lastPollAt);
+        statistics.put("versions", new LinkedHashMap<>(seen));
+        return statistics;
+    }
+
+    private synchronized void poll(boolean publish) {
+        Set<String> changed = new HashSet<>();
+        for (ChangeVersion row : changeVersionRepository.findAll()) {
+            Long previous = seen.put(row.getName(), row.getVersion());
+            if (previous != null && previous != row.getVersion()) {
+                changed.add(row.getName());
+            }
+        }
+        polls.incrementAndGet();
+        lastPollAt = Instant.now();
+
+        if (publish && !changed.isEmpty()) {
+            changesDetected.addAndGet(changed.size());
+            eventPublisher.publishEvent(new ReferenceDataChangedEvent(changed));
+        }
+    }
+}
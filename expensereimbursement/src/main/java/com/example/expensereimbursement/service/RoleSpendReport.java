@@ -0,0 +1,171 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.Category;
+import com.example.expensereimbursement.model.Role;
+import com.example.expensereimbursement.repository.CategoryRepository;
+import com.example.expensereimbursement.repository.EmployeeRepository;
+import com.example.expensereimbursement.repository.ExpenseRepository;
+import com.example.expensereimbursement.repository.RoleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-employee, per-category usage against the package limits for a whole role (or all roles).
+ * The spend is read with one grouped query per shard (employee x category x status sums) and the employees with
+ * one projection query, instead of a findAll of RoleCategoryPackage and a full expense load per employee.
+ * Limits come from the ExpensePolicyMatrix. Report rows are built in parallel on the fork-join pool, one chunk of
+ * employees at a time, and each chunk is handed to the writer before the next is built, so the output for
+ * thousands of employees streams without being held in memory as a whole.
+ * Rejected expenses do not use up a package, and spend in a category the role has no package for is reported as
+ * exceeded (expenseLimit null), since none of it could have been approved within a limit.
+ */
+@Component
+public class RoleSpendReport {
+
+    private static final int APPROVED_STATUS_ID = 2;
+    private static final int REJECTED_STATUS_ID = 3;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpensePolicyMatrix expensePolicyMatrix;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    // Number of employees built in parallel and written together
+    @Value("${expense.reports.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Receives the report rows chunk by chunk, e.g. to write them to the response.
+     */
+    @FunctionalInterface
+    public interface ChunkWriter {
+        void write(List<Map<String, Object>> rows) throws IOException;
+    }
+
+    /**
+     * Runs the queries of the report. Nothing is written yet, so invalid input can still be reported as an error.
+     * @param roleId The role ID, or null for all active roles
+     * @return The report, ready to be written
+     * @throws IllegalArgumentException if the role does not exist or is not active
+     */
+    public Report prepare(Integer roleId) {
+        if (roleId != null) {
+            Role role = roleRepository.findById(roleId)
+                    .orElseThrow(() -> new IllegalArgumentException("Error: Role not found for ID: " + roleId));
+            if (!role.isStatus()) {
+                throw new IllegalArgumentException("Error: Role is not active.");
+            }
+        }
+
+        List<Object[]> employees = employeeRepository.findReportRowsByRoleId(roleId);
+
+        // Each employee's expenses live on one shard, so the shards' sums never overlap
+        Map<Integer, Map<Integer, long[]>> spend = new HashMap<>();
+        for (Object[] row : shardRouter.scatterGather(
+                () -> expenseRepository.sumAmountsByEmployeeCategoryAndStatus(roleId, REJECTED_STATUS_ID))) {
+            long[] amounts = spend.computeIfAbsent((Integer) row[0], id -> new HashMap<>())
+                    .computeIfAbsent((Integer) row[1], id -> new long[2]);
+            amounts[row[2] != null && (Integer) row[2] == APPROVED_STATUS_ID ? 0 : 1] += ((Number) row[3]).longValue();
+        }
+
+        Map<Integer, String> categories = new TreeMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            categories.put(category.getId(), category.getName());
+        }
+        return new Report(employees, spend, categories);
+    }
+
+    /**
+     * The queried data of a report; rows are built while writing.
+     */
+    public final class Report {
+        private final List<Object[]> employees;
+        private final Map<Integer, Map<Integer, long[]>> spend;
+        private final Map<Integer, String> categories;
+
+        private Report(List<Object[]> employees, Map<Integer, Map<Integer, long[]>> spend, Map<Integer, String> categories) {
+            this.employees = employees;
+            this.spend = spend;
+            this.categories = categories;
+        }
+
+        /**
+         * @return The number of employees in the report
+         */
+        public int getEmployeeCount() {
+            return employees.size();
+        }
+
+        /**
+         * Builds the rows, one per employee in ID order, and passes them to the writer chunk by chunk.
+         * @param writer Receives each chunk of rows
+         * @throws IOException if the writer fails
+         */
+        public void writeTo(ChunkWriter writer) throws IOException {
+            for (int from = 0; from < employees.size(); from += chunkSize) {
+                List<Object[]> chunk = employees.subList(from, Math.min(employees.size(), from + chunkSize));
+                // An ordered parallel stream runs on the fork-join pool and keeps the employee order
+                writer.write(chunk.parallelStream().map(this::row).toList());
+            }
+        }
+
+        private Map<String, Object> row(Object[] employee) {
+            int employeeId = (Integer) employee[0];
+            int roleId = (Integer) employee[2];
+            Map<Integer, long[]> employeeSpend = spend.getOrDefault(employeeId, Map.of());
+
+            List<Map<String, Object>> usage = new ArrayList<>();
+            for (Map.Entry<Integer, String> category : categories.entrySet()) {
+                int limit = expensePolicyMatrix.limitForCategory(roleId, category.getKey());
+                long[] amounts = employeeSpend.get(category.getKey());
+                if (limit < 0 && amounts == null) {
+                    continue;  // Neither a package nor any spend in this category
+                }
+                long approved = amounts == null ? 0 : amounts[0];
+                long pending = amounts == null ? 0 : amounts[1];
+                long used = approved + pending;
+
+                Map<String, Object> categoryUsage = new LinkedHashMap<>();
+                categoryUsage.put("categoryId", category.getKey());
+                categoryUsage.put("category", category.getValue());
+                categoryUsage.put("expenseLimit", limit < 0 ? null : limit);
+                categoryUsage.put("approved", approved);
+                categoryUsage.put("pending", pending);
+                categoryUsage.put("expenseUsed", used);
+                categoryUsage.put("remainingLimit", limit < 0 ? null : limit - used);
+                categoryUsage.put("exceeded", limit < 0 || used > limit);
+                usage.add(categoryUsage);
+            }
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("employeeId", employeeId);
+            row.put("employeeName", employee[1]);
+            row.put("roleId", roleId);
+            row.put("role", employee[3]);
+            row.put("categories", usage);
+            return row;
+        }
+    }
+}
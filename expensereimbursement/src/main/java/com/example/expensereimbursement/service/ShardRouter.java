@@ -0,0 +1,185 @@
+package com.example.expensereimbursement.service;
+
+import com.example.config.ShardRoutingDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Routes expense data access to shards (see ShardingConfig).
+ * Expenses live on the shard of their employee (employee ID modulo the shard count); the shard of an existing
+ * expense follows from its ID. Queries over all employees run on every shard in parallel and their results are
+ * merged. With sharding disabled there is a single shard and everything runs directly on the calling thread.
+ */
+@Component
+public class ShardRouter {
+
+    @Autowired(required = false)
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @return The number of shards; 1 when sharding is disabled
+     */
+    public int getShardCount() {
+        return shardRoutingDataSource == null ? 1 : shardRoutingDataSource.getShardCount();
+    }
+
+    /**
+     * @param employeeId The ID of an employee
+     * @return The shard holding the employee's expenses
+     */
+    public int shardForEmployee(int employeeId) {
+        return Math.floorMod(employeeId, getShardCount());
+    }
+
+    /**
+     * @param expenseId The ID of an expense
+     * @return The shard holding the expense
+     * @throws IllegalArgumentException If the ID is outside the ID ranges of the shards
+     */
+    public int shardForExpense(int expenseId) {
+        return shardRoutingDataSource == null ? 0 : shardRoutingDataSource.shardForId(expenseId);
+    }
+
+    /**
+     * Fails when an expense inserted into a shard got an ID outside the shard's range; call it inside the transaction
+     * of the insert so the row is rolled back.
+     * @param shard The shard index
+     * @param expenseId The generated expense ID
+     */
+    public void checkExpenseIdRange(int shard, int expenseId) {
+        if (shardRoutingDataSource != null) {
+            shardRoutingDataSource.checkIdInRange(shard, expenseId);
+        }
+    }
+
+    /**
+     * @param shard The shard index
+     * @return The ID below the shard's expense ID range; every expense ID of the shard is greater
+     */
+    public int getIdRangeStart(int shard) {
+        return shardRoutingDataSource == null ? 0 : shard * shardRoutingDataSource.getIdRangeSize();
+    }
+
+    /**
+     * Runs repository calls against one shard. Each call (or transaction) started inside gets a connection of it.
+     * @param shard The shard index
+     * @param work The work to run
+     * @return The result of the work
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (shardRoutingDataSource == null) {
+            return work.get();
+        }
+        Integer previous = ShardRoutingDataSource.getCurrentShard();
+        ShardRoutingDataSource.setCurrentShard(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardRoutingDataSource.setCurrentShard(previous);
+        }
+    }
+
+    /**
+     * Runs a query on every shard in parallel and concatenates the results.
+     * @param query The query, run once per shard
+     * @return The results of all shards
+     */
+    public <T> List<T> scatterGather(Supplier<List<T>> query) {
+        List<T> result = new ArrayList<>();
+        for (List<T> shardResult : runOnEveryShard(query)) {
+            result.addAll(shardResult);
+        }
+        return result;
+    }
+
+    /**
+     * Runs a query on every shard in parallel and merges the sorted results.
+     * @param query The query, run once per shard; it must return its rows sorted by order
+     * @param order The order of the rows
+     * @return The results of all shards, sorted by order
+     */
+    public <T> List<T> scatterGather(Supplier<List<T>> query, Comparator<? super T> order) {
+        List<List<T>> shardResults = runOnEveryShard(query);
+        if (shardResults.size() == 1) {
+            return shardResults.get(0);
+        }
+
+        // k-way merge of the sorted shard results
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.current, b.current));
+        int size = 0;
+        for (List<T> shardResult : shardResults) {
+            size += shardResult.size();
+            Iterator<T> it = shardResult.iterator();
+            if (it.hasNext()) {
+                heads.add(new Head<>(it.next(), it));
+            }
+        }
+        List<T> merged = new ArrayList<>(size);
+        while (!heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            merged.add(head.current);
+            if (head.rest.hasNext()) {
+                head.current = head.rest.next();
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> List<List<T>> runOnEveryShard(Supplier<List<T>> query) {
+        int shardCount = getShardCount();
+        if (shardCount == 1) {
+            return List.of(query.get());
+        }
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> onShard(target, query)));
+        }
+        List<List<T>> results = new ArrayList<>();
+        for (Future<List<T>> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new CompletionException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while querying the shards.", e);
+            }
+        }
+        return results;
+    }
+
+    private static final class Head<T> {
+        private T current;
+        private final Iterator<T> rest;
+
+        Head(T current, Iterator<T> rest) {
+            this.current = current;
+            this.rest = rest;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.PayrollOutboxEntry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stand-in for payroll, for local runs and tests. Keeps every delivered message and can be told to
+ * fail the next few batches, or every batch holding a given expense, to exercise the retries.
+ */
+@Component
+@ConditionalOnProperty(name = "expense.payroll.sink", havingValue = "stub", matchIfMissing = true)
+public class StubPayrollSink implements PayrollSink {
+
+    // Guarded by "this"
+    private final List<Map<String, Object>> delivered = new ArrayList<>();
+
+    private final AtomicInteger failuresToInject = new AtomicInteger();
+
+    private final Set<Integer> rejectedExpenseIds = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public synchronized void send(List<PayrollOutboxEntry> batch) throws IOException {
+        if (failuresToInject.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            throw new IOException("Injected payroll failure.");
+        }
+        for (PayrollOutboxEntry entry : batch) {
+            if (rejectedExpenseIds.contains(entry.getExpenseId())) {
+                throw new IOException("Payroll rejected expense " + entry.getExpenseId() + ".");
+            }
+        }
+        for (PayrollOutboxEntry entry : batch) {
+            delivered.add(PayrollSink.toMessage(entry));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "stub";
+    }
+
+    /**
+     * @return Every message delivered so far, in delivery order (redeliveries included)
+     */
+    public synchronized List<Map<String, Object>> getDelivered() {
+        return new ArrayList<>(delivered);
+    }
+
+    /**
+     * Makes the next batches fail.
+     * @param batches The number of batches to fail
+     */
+    public void failNext(int batches) {
+        failuresToInject.set(batches);
+    }
+
+    /**
+     * Makes every batch holding the expense fail, as payroll does with a message it cannot accept.
+     * @param expenseId The ID of the expense
+     */
+    public void rejectExpense(int expenseId) {
+        rejectedExpenseIds.add(expenseId);
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Start-up time report of the fast-startup profile (mvn -Pfast-startup package).
+ * Starts the extracted jar as a plain jar and with AOT + the AppCDS archive, several times each, with the JDK this
+ * program runs on (the toolchain JDK the archive was trained with). Each run is stopped once Spring Boot logs
+ * "Started ... in N seconds (process running for M)"; the median of both numbers is written side by side to
+ * startup-report.txt, and every run's log is kept next to it.
+ * Usage: java StartupReport.java <startup dir> <application jar> <runs per configuration>
+ */
+public class StartupReport {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([\\d.]+) seconds \\(process running for ([\\d.]+)\\)");
+
+    private static final long RUN_TIMEOUT_SECONDS = 120;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args[0]);
+        String jar = args[1];
+        int runs = Integer.parseInt(args[2]);
+        String java = ProcessHandle.current().info().command().orElse("java");
+
+        // Same JVM flags as the cds-training-run execution in pom.xml, without spring.context.exit
+        Map<String, List<String>> configurations = new LinkedHashMap<>();
+        configurations.put("baseline", List.of());
+        configurations.put("aot-cds", List.of("-XX:SharedArchiveFile=" + directory.resolve("app/application.jsa"),
+                "-Xlog:cds=warning", "-Dspring.aot.enabled=true"));
+
+        Map<String, double[]> medians = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> configuration : configurations.entrySet()) {
+            double[] started = new double[runs];
+            double[] process = new double[runs];
+            for (int run = 1; run <= runs; run++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(configuration.getValue());
+                command.addAll(List.of("-Dspring.profiles.active=prod", "-Dserver.port=0", "-jar", jar));
+                double[] times = measure(command, directory.resolve("startup-" + configuration.getKey() + "-" + run + ".txt"));
+                started[run - 1] = times[0];
+                process[run - 1] = times[1];
+            }
+            medians.put(configuration.getKey(), new double[]{median(started), median(process)});
+        }
+
+        Path report = directory.resolve("startup-report.txt");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            out.printf("Start-up time, median of %d runs (%s, Java %s)%n", runs, java, Runtime.version());
+            out.printf("%-12s %14s %14s%n", "", "started (s)", "process (s)");
+            for (Map.Entry<String, double[]> entry : medians.entrySet()) {
+                out.printf("%-12s %14.3f %14.3f%n", entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+            }
+            double[] baseline = medians.get("baseline");
+            double[] optimized = medians.get("aot-cds");
+            out.printf("%-12s %13.2fx %13.2fx%n", "speed-up", baseline[0] / optimized[0], baseline[1] / optimized[1]);
+        }
+        System.out.print(Files.readString(report));
+    }
+
+    // Runs the application until it reports being started; returns {started, process running} in seconds
+    private static double[] measure(List<String> command, Path log) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Thread watchdog = Thread.ofPlatform().daemon().start(() -> {
+            try {
+                if (!process.waitFor(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+            }
+        });
+
+        double[] times = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(Files.newBufferedWriter(log, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                out.println(line);
+                Matcher matcher = STARTED.matcher(line);
+                if (matcher.find()) {
+                    times = new double[]{Double.parseDouble(matcher.group(1)), Double.parseDouble(matcher.group(2))};
+                    break;
+                }
+            }
+        }
+        process.destroy();  // Started (or failed): the shutdown output is not part of the report
+        process.waitFor();
+        watchdog.interrupt();
+        if (times == null) {
+            throw new IllegalStateException("The application did not report its start-up (exit code " + process.exitValue()
+                    + "), see " + log);
+        }
+        return times;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
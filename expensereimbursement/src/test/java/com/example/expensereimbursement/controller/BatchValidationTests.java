@@ -0,0 +1,114 @@
+package com.example.expensereimbursement.controller;
+
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:batch_validation;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"expense.audit-journal.directory=target/test-data/batch-validation/audit-journal"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BatchValidationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private CategoryPackageRepository categoryPackageRepository;
+
+	@Autowired
+	private RoleCategoryPackageRepository roleCategoryPackageRepository;
+
+	private int engineerRoleId;
+
+	private int silverPackageId;
+
+	private int goldPackageId;
+
+	@BeforeAll
+	void seed() {
+		Role engineer = new Role();
+		engineer.setName("Engineer");
+		engineer.setStatus(true);
+		engineerRoleId = roleRepository.save(engineer).getId();
+
+		Category travel = new Category();
+		travel.setName("Travel");
+		travel.setStatus(true);
+		categoryRepository.save(travel);
+
+		CategoryPackage silver = categoryPackage(travel, "Silver", 10000);
+		silverPackageId = silver.getId();
+		goldPackageId = categoryPackage(travel, "Gold", 20000).getId();
+
+		RoleCategoryPackage roleCategoryPackage = new RoleCategoryPackage();
+		roleCategoryPackage.setRole(engineer);
+		roleCategoryPackage.setCategoryPackage(silver);
+		roleCategoryPackageRepository.save(roleCategoryPackage);
+	}
+
+	@Test
+	void returnsOneResultPerItemInRequestOrder() throws Exception {
+		String batch = "["
+				+ item(engineerRoleId, silverPackageId, 10000) + ","
+				+ item(engineerRoleId, silverPackageId, 10001) + ","
+				+ item(engineerRoleId, goldPackageId, 100) + ","
+				+ item(999, silverPackageId, 100) + ","
+				+ "{\"roleId\":" + engineerRoleId + ",\"categoryPackageId\":" + silverPackageId + "}"
+				+ "]";
+
+		mockMvc.perform(post("/api/expenses/validate/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(5))
+				.andExpect(jsonPath("$[0].index").value(0))
+				.andExpect(jsonPath("$[0].valid").value(true))
+				.andExpect(jsonPath("$[0].expenseLimit").value(10000))
+				.andExpect(jsonPath("$[1].valid").value(false))
+				.andExpect(jsonPath("$[1].reason").value("Expense amount exceeds the limit of 10000."))
+				.andExpect(jsonPath("$[2].reason").value("Role is not associated with this Category Package."))
+				.andExpect(jsonPath("$[3].reason").value("Role not found for ID: 999"))
+				.andExpect(jsonPath("$[4].index").value(4))
+				.andExpect(jsonPath("$[4].reason").value("Expense amount is required."));
+	}
+
+	@Test
+	void rejectsAnEmptyBatch() throws Exception {
+		mockMvc.perform(post("/api/expenses/validate/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string("Error: At least one expense item is required."));
+	}
+
+	private CategoryPackage categoryPackage(Category category, String name, int limit) {
+		CategoryPackage categoryPackage = new CategoryPackage();
+		categoryPackage.setCategory(category);
+		categoryPackage.setPackageName(name);
+		categoryPackage.setExpenseLimit(limit);
+		return categoryPackageRepository.save(categoryPackage);
+	}
+
+	private static String item(int roleId, int categoryPackageId, int amount) {
+		return "{\"roleId\":" + roleId + ",\"categoryPackageId\":" + categoryPackageId + ",\"expenseAmount\":" + amount + "}";
+	}
+}
@@ -0,0 +1,204 @@
+package com.example.expensereimbursement.controller;
+
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.*;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The server gets few request threads and JDBC connections, as under load, so the benchmark shows how each read
+// stack behaves once they are exhausted
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"server.tomcat.threads.max=8",
+		"spring.datasource.hikari.maximum-pool-size=4",
+		"expense.reactive.pool.max-size=4",
+		"expense.audit-journal.directory=target/test-data/reactive-read/audit-journal"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReactiveExpenseReadTests {
+
+	// Seeded expenses and concurrent clients; override with -Dreactive.benchmark.expenses=... / .clients=...
+	private static final int EXPENSES = Integer.getInteger("reactive.benchmark.expenses", 2000);
+
+	private static final int CLIENTS = Integer.getInteger("reactive.benchmark.clients", 64);
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private ExpenseStatusRepository expenseStatusRepository;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	private Employee employee;
+
+	@BeforeAll
+	void seed() {
+		Role role = new Role();
+		role.setName("Engineer");
+		role.setStatus(true);
+		roleRepository.save(role);
+
+		employee = new Employee();
+		employee.setName("Reactive Reads");
+		employee.setEmail("reactive.reads@example.com");
+		employee.setRole(role);
+		employeeRepository.save(employee);
+
+		Category category = new Category();
+		category.setName("Travel");
+		category.setStatus(true);
+		categoryRepository.save(category);
+
+		ExpenseStatus pending = null;
+		for (String name : List.of("Pending", "Approved", "Rejected")) {
+			ExpenseStatus status = new ExpenseStatus();
+			status.setName(name);
+			status.setStatus(true);
+			expenseStatusRepository.save(status);
+			pending = pending == null ? status : pending;
+		}
+
+		List<Expense> expenses = new ArrayList<>();
+		LocalDateTime now = LocalDateTime.now();
+		for (int i = 0; i < EXPENSES; i++) {
+			Expense expense = new Expense();
+			expense.setEmployee(employee);
+			expense.setCategory(category);
+			expense.setStatus(pending);
+			expense.setAmount(100 + i);
+			expense.setDescription("Hotel night during the regional sales meeting " + i);
+			expense.setSubmitDate(now.minusMinutes(i));
+			expenses.add(expense);
+		}
+		expenseRepository.saveAll(expenses);
+	}
+
+	@Test
+	void streamsTheSameExpensesAsTheBlockingEndpoint() throws Exception {
+		HttpResponse<String> blocking = send("/api/expenses/history?statusId=1&categoryName=Travel");
+		HttpResponse<String> reactive = send("/api/reactive/expenses/history?statusId=1&categoryName=Travel");
+
+		assertEquals(200, reactive.statusCode());
+		assertTrue(reactive.headers().firstValue("Content-Type").orElse("").startsWith("application/x-ndjson"));
+
+		JsonNode expected = objectMapper.readTree(blocking.body());
+		String[] lines = reactive.body().split("\n");
+		assertEquals(expected.size(), lines.length);
+		for (int i = 0; i < lines.length; i++) {
+			assertEquals(expected.get(i), objectMapper.readTree(lines[i]));
+		}
+	}
+
+	@Test
+	void streamsExpensesOfAnEmployeeWithinADateRange() throws Exception {
+		String today = LocalDateTime.now().toLocalDate().toString();
+		HttpResponse<String> reactive = send("/api/reactive/expenses/employee/" + employee.getId()
+				+ "?startDate=" + today + "&endDate=" + today);
+
+		assertEquals(200, reactive.statusCode());
+		long expected = expenseRepository.findByEmployeeAndSubmitDateBetween(employee,
+				LocalDateTime.now().toLocalDate().atStartOfDay(), LocalDateTime.now().toLocalDate().atTime(23, 59, 59)).size();
+		assertEquals(expected, reactive.body().lines().count());
+	}
+
+	@Test
+	void rejectsAnUnknownStatus() throws Exception {
+		HttpResponse<String> response = send("/api/reactive/expenses/history?statusId=99");
+
+		assertEquals(400, response.statusCode());
+		assertEquals("Error: Invalid status ID provided.", response.body());
+	}
+
+	// Benchmark: CLIENTS concurrent history reads against the blocking and the reactive endpoint, each of which must
+	// return every expense to every client. Not part of the default build; run it with
+	// mvn test -Dtest.groups=benchmark -Dtest.excluded-groups= [-Dreactive.benchmark.clients=...]
+	@Test
+	@Tag("benchmark")
+	void concurrentReadsOnBothStacks() throws Exception {
+		long[] blocking = runConcurrently("/api/expenses/history?statusId=1&categoryName=Travel",
+				body -> objectMapper.readTree(body).size());
+		long[] reactive = runConcurrently("/api/reactive/expenses/history?statusId=1&categoryName=Travel",
+				body -> (int) body.lines().count());
+
+		System.out.printf("History reads, %d clients x %d expenses: blocking %d ms total, p50 %d ms, p99 %d ms; "
+						+ "reactive %d ms total, p50 %d ms, p99 %d ms%n",
+				CLIENTS, EXPENSES, blocking[0], blocking[1], blocking[2], reactive[0], reactive[1], reactive[2]);
+	}
+
+	// Runs the request once per client at the same time (after a warm-up round); returns total, p50 and p99 in ms
+	private long[] runConcurrently(String path, RowCounter rowCounter) throws Exception {
+		long[] result = null;
+		for (int round = 0; round < 2; round++) {
+			try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+				long start = System.nanoTime();
+				List<Future<Long>> latencies = new ArrayList<>();
+				for (int i = 0; i < CLIENTS; i++) {
+					latencies.add(clients.submit(() -> {
+						long requestStart = System.nanoTime();
+						HttpResponse<String> response = send(path);
+						assertEquals(200, response.statusCode());
+						assertEquals(EXPENSES, rowCounter.count(response.body()));
+						return System.nanoTime() - requestStart;
+					}));
+				}
+				long[] millis = new long[CLIENTS];
+				for (int i = 0; i < CLIENTS; i++) {
+					millis[i] = latencies.get(i).get() / 1_000_000;
+				}
+				Arrays.sort(millis);
+				result = new long[]{(System.nanoTime() - start) / 1_000_000, millis[CLIENTS / 2], millis[(int) (CLIENTS * 0.99)]};
+			}
+		}
+		return result;
+	}
+
+	private HttpResponse<String> send(String path) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	@FunctionalInterface
+	private interface RowCounter {
+		int count(String body) throws Exception;
+	}
+
+}
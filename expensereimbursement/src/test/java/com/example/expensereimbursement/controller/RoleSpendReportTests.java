@@ -0,0 +1,213 @@
+package com.example.expensereimbursement.controller;
+
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.*;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A small chunk size, so the report is built and written in several chunks
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:role_spend;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"expense.reports.chunk-size=7",
+		"expense.audit-journal.directory=target/test-data/role-spend/audit-journal"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RoleSpendReportTests {
+
+	private static final int ENGINEERS = 30;
+
+	private static final int TRAVEL_LIMIT = 1000;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private ExpenseStatusRepository expenseStatusRepository;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	@Autowired
+	private CategoryPackageRepository categoryPackageRepository;
+
+	@Autowired
+	private RoleCategoryPackageRepository roleCategoryPackageRepository;
+
+	private int engineerRoleId;
+
+	private int internRoleId;
+
+	@BeforeAll
+	void seed() {
+		Role engineer = role("Senior Software Engineer", true);
+		Role intern = role("Intern", false);
+		engineerRoleId = engineer.getId();
+		internRoleId = intern.getId();
+
+		Category travel = category("Travel");
+		Category meals = category("Meals");
+		List<ExpenseStatus> statuses = new ArrayList<>();
+		for (String name : List.of("Pending", "Approved", "Rejected")) {
+			ExpenseStatus status = new ExpenseStatus();
+			status.setName(name);
+			status.setStatus(true);
+			statuses.add(expenseStatusRepository.save(status));
+		}
+
+		// Engineers have a Travel package but none for Meals
+		CategoryPackage gold = new CategoryPackage();
+		gold.setCategory(travel);
+		gold.setPackageName("Gold");
+		gold.setExpenseLimit(TRAVEL_LIMIT);
+		categoryPackageRepository.save(gold);
+		RoleCategoryPackage roleCategoryPackage = new RoleCategoryPackage();
+		roleCategoryPackage.setRole(engineer);
+		roleCategoryPackage.setCategoryPackage(gold);
+		roleCategoryPackageRepository.save(roleCategoryPackage);
+
+		List<Expense> expenses = new ArrayList<>();
+		for (int i = 1; i <= ENGINEERS; i++) {
+			Employee employee = employee("Engineer " + i, engineer);
+			expenses.add(expense(employee, travel, statuses.get(1), 40 * i));
+			expenses.add(expense(employee, travel, statuses.get(0), 10));
+			expenses.add(expense(employee, travel, statuses.get(2), 500));  // Rejected: not counted
+			if (i % 3 == 0) {
+				expenses.add(expense(employee, meals, statuses.get(0), 20));
+			}
+		}
+		for (int i = 1; i <= 5; i++) {
+			expenses.add(expense(employee("Intern " + i, intern), travel, statuses.get(1), 100));
+		}
+		expenseRepository.saveAll(expenses);
+	}
+
+	@Test
+	void streamsUsageOfEveryEmployeeOfTheRole() throws Exception {
+		List<JsonNode> rows = report("/api/reports/role-spend?roleId=" + engineerRoleId);
+
+		assertEquals(ENGINEERS, rows.size());
+		for (int i = 1; i <= ENGINEERS; i++) {
+			JsonNode row = rows.get(i - 1);
+			assertEquals("Engineer " + i, row.get("employeeName").asText());
+			assertEquals("Senior Software Engineer", row.get("role").asText());
+
+			JsonNode categories = row.get("categories");
+			assertEquals(i % 3 == 0 ? 2 : 1, categories.size());
+			JsonNode travel = categories.get(0);
+			assertEquals("Travel", travel.get("category").asText());
+			assertEquals(TRAVEL_LIMIT, travel.get("expenseLimit").asInt());
+			assertEquals(40 * i, travel.get("approved").asLong());
+			assertEquals(10, travel.get("pending").asLong());
+			assertEquals(TRAVEL_LIMIT - 40 * i - 10, travel.get("remainingLimit").asLong());
+			assertEquals(40 * i + 10 > TRAVEL_LIMIT, travel.get("exceeded").asBoolean());
+			if (i % 3 == 0) {
+				JsonNode meals = categories.get(1);
+				assertEquals("Meals", meals.get("category").asText());
+				assertTrue(meals.get("expenseLimit").isNull());
+				assertTrue(meals.get("exceeded").asBoolean());
+			}
+		}
+	}
+
+	@Test
+	void coversAllActiveRolesWithoutRoleId() throws Exception {
+		List<JsonNode> rows = report("/api/reports/role-spend");
+
+		assertEquals(ENGINEERS, rows.size());
+		for (int i = 1; i < rows.size(); i++) {
+			assertTrue(rows.get(i - 1).get("employeeId").asInt() < rows.get(i).get("employeeId").asInt());
+		}
+	}
+
+	@Test
+	void rejectsUnknownAndInactiveRoles() throws Exception {
+		assertEquals("Error: Role not found for ID: 999", rejection("/api/reports/role-spend?roleId=999"));
+		assertEquals("Error: Role is not active.", rejection("/api/reports/role-spend?roleId=" + internRoleId));
+	}
+
+	private String rejection(String url) throws Exception {
+		MvcResult started = mockMvc.perform(get(url)).andExpect(status().isBadRequest()).andReturn();
+		return mockMvc.perform(asyncDispatch(started)).andExpect(status().isBadRequest())
+				.andReturn().getResponse().getContentAsString();
+	}
+
+	private List<JsonNode> report(String url) throws Exception {
+		MvcResult started = mockMvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn();
+		String body = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		List<JsonNode> rows = new ArrayList<>();
+		for (String line : body.split("\n")) {
+			if (!line.isBlank()) {
+				rows.add(objectMapper.readTree(line));
+			}
+		}
+		return rows;
+	}
+
+	private Role role(String name, boolean active) {
+		Role role = new Role();
+		role.setName(name);
+		role.setStatus(active);
+		return roleRepository.save(role);
+	}
+
+	private Category category(String name) {
+		Category category = new Category();
+		category.setName(name);
+		category.setStatus(true);
+		return categoryRepository.save(category);
+	}
+
+	private Employee employee(String name, Role role) {
+		Employee employee = new Employee();
+		employee.setName(name);
+		employee.setEmail(name.replace(' ', '.').toLowerCase() + "@example.com");
+		employee.setRole(role);
+		return employeeRepository.save(employee);
+	}
+
+	private static Expense expense(Employee employee, Category category, ExpenseStatus status, int amount) {
+		Expense expense = new Expense();
+		expense.setEmployee(employee);
+		expense.setCategory(category);
+		expense.setStatus(status);
+		expense.setAmount(amount);
+		expense.setDescription("Seeded");
+		expense.setSubmitDate(LocalDateTime.now());
+		return expense;
+	}
+}
@@ -0,0 +1,171 @@
+package com.example.expensereimbursement.controller;
+
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SparseFieldsetTests {
+
+	// Number of seeded pending expenses; override with -Dsparse-fields.benchmark.expenses=...
+	private static final int EXPENSES = Integer.getInteger("sparse-fields.benchmark.expenses", 2000);
+
+	private static final int RUNS = 20;
+
+	private static final String MOBILE_FIELDS = "id,amount,category.name,status.name";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private ExpenseStatusRepository expenseStatusRepository;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	private Employee employee;
+
+	private int newestExpenseId;
+
+	@BeforeAll
+	void seed() {
+		Role role = new Role();
+		role.setName("Engineer");
+		role.setStatus(true);
+		roleRepository.save(role);
+
+		employee = new Employee();
+		employee.setName("Sparse Fields");
+		employee.setEmail("sparse.fields@example.com");
+		employee.setRole(role);
+		employeeRepository.save(employee);
+
+		Category category = new Category();
+		category.setName("Travel");
+		category.setStatus(true);
+		categoryRepository.save(category);
+
+		ExpenseStatus pending = null;
+		for (String name : List.of("Pending", "Approved", "Rejected")) {
+			ExpenseStatus status = new ExpenseStatus();
+			status.setName(name);
+			status.setStatus(true);
+			expenseStatusRepository.save(status);
+			pending = pending == null ? status : pending;
+		}
+
+		List<Expense> expenses = new ArrayList<>();
+		LocalDateTime now = LocalDateTime.now();
+		for (int i = 0; i < EXPENSES; i++) {
+			Expense expense = new Expense();
+			expense.setEmployee(employee);
+			expense.setCategory(category);
+			expense.setStatus(pending);
+			expense.setAmount(100 + i);
+			expense.setDescription("Taxi from the airport to the client office, trip " + i);
+			expense.setSubmitDate(now.minusMinutes(i));
+			expenses.add(expense);
+		}
+		newestExpenseId = expenseRepository.saveAll(expenses).get(0).getId();
+	}
+
+	@Test
+	void returnsOnlyTheRequestedFields() throws Exception {
+		mockMvc.perform(get("/api/expenses").param("fields", MOBILE_FIELDS))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].id").exists())
+				.andExpect(jsonPath("$[0].amount").exists())
+				.andExpect(jsonPath("$[0].category.name").value("Travel"))
+				.andExpect(jsonPath("$[0].status.name").value("Pending"))
+				.andExpect(jsonPath("$[0].description").doesNotExist())
+				.andExpect(jsonPath("$[0].employee").doesNotExist())
+				.andExpect(jsonPath("$[0].category.id").doesNotExist());
+	}
+
+	@Test
+	void rejectsUnknownFields() throws Exception {
+		mockMvc.perform(get("/api/expenses").param("fields", "id,password"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void historyIsOrderedNewestFirst() throws Exception {
+		mockMvc.perform(get("/api/expenses/history").param("statusId", "1").param("fields", "id,submitDate"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].amount").doesNotExist())
+				.andExpect(jsonPath("$[0].id").value(newestExpenseId));
+	}
+
+	// Benchmark: payload size and median latency of the sparse representation against the full one
+	// mvn test -Dtest.groups=benchmark -Dtest.excluded-groups= [-Dsparse-fields.benchmark.expenses=...]
+	@Test
+	@Tag("benchmark")
+	void sparseFieldsetsAreSmallerThanTheFullRepresentation() throws Exception {
+		String today = LocalDateTime.now().toLocalDate().toString();
+		String from = LocalDateTime.now().minusYears(1).toLocalDate().toString();
+		String[][] endpoints = {
+				{"/api/expenses", ""},
+				{"/api/expenses/history", "statusId=1"},
+				{"/api/expenses/employee/" + employee.getId(), "startDate=" + from + "&endDate=" + today},
+		};
+
+		for (String[] endpoint : endpoints) {
+			String url = endpoint[0] + "?" + endpoint[1];
+			long[] full = measure(url);
+			long[] sparse = measure(url + "&fields=" + MOBILE_FIELDS);
+
+			System.out.printf("%s (%d expenses): full %d KB in %.2f ms, fields=%s %d KB in %.2f ms (%.0f%% of the payload)%n",
+					endpoint[0], EXPENSES, full[0] >> 10, full[1] / 1e6, MOBILE_FIELDS, sparse[0] >> 10,
+					sparse[1] / 1e6, 100.0 * sparse[0] / full[0]);
+
+			assertTrue(sparse[0] * 2 < full[0], endpoint[0] + ": sparse payload " + sparse[0] + " bytes, full " + full[0]);
+		}
+	}
+
+	// Returns the response size in bytes and the median latency in nanoseconds, after warming up
+	private long[] measure(String url) throws Exception {
+		long size = 0;
+		long[] nanos = new long[RUNS];
+		for (int i = 0; i < RUNS * 2; i++) {
+			long start = System.nanoTime();
+			byte[] body = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+			if (i >= RUNS) {
+				nanos[i - RUNS] = System.nanoTime() - start;
+			}
+			size = body.length;
+		}
+		Arrays.sort(nanos);
+		return new long[]{size, nanos[RUNS / 2]};
+	}
+
+}
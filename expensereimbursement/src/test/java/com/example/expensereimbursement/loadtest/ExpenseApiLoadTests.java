@@ -0,0 +1,238 @@
+package com.example.expensereimbursement.loadtest;
+
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Open-loop load test of the ExpenseController endpoints, with the traffic of the Postman collection:
+ * submit (POST /api/expenses), validate (POST /api/expenses/validate), approve (PATCH /api/expenses/{id}/status)
+ * and history (GET /api/expenses/history). Runs against an embedded database seeded with the reference data of
+ * the database script, employees and an expense history. Only runs in the load-test profile:
+ * mvn -Pload-test test [-Dload-test.rate=... -Dload-test.mix=... -Dload-test.p99-max-ms=...]
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:load_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"expense.audit-journal.directory=target/load-test/audit-journal",
+		"expense.receipts.directory=target/load-test/receipts"
+})
+@ActiveProfiles("test")
+@Tag("load-test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ExpenseApiLoadTests {
+
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	private static final String[] CATEGORIES = {"Travel", "Medical coverage", "Education allowances"};
+
+	private final LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private ExpenseStatusRepository expenseStatusRepository;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	@Autowired
+	private CategoryPackageRepository categoryPackageRepository;
+
+	@Autowired
+	private RoleCategoryPackageRepository roleCategoryPackageRepository;
+
+	private final List<Integer> employeeIds = new ArrayList<>();
+
+	private final List<Integer> categoryIds = new ArrayList<>();
+
+	// (roleId, categoryPackageId) pairs for validation requests
+	private final List<int[]> rolePackages = new ArrayList<>();
+
+	// Pending expenses the approve operation works through, oldest first
+	private final Deque<Integer> pendingExpenseIds = new ArrayDeque<>();
+
+	@BeforeAll
+	void seed() {
+		// Reference data as in the database script
+		List<Role> roles = new ArrayList<>();
+		for (String name : List.of("Intern", "Associate Software Engineer", "Software Engineer", "Senior Software Engineer", "Manager")) {
+			Role role = new Role();
+			role.setName(name);
+			role.setStatus(!name.equals("Intern"));
+			roles.add(roleRepository.save(role));
+		}
+		List<Category> categories = new ArrayList<>();
+		for (String name : CATEGORIES) {
+			Category category = new Category();
+			category.setName(name);
+			category.setStatus(true);
+			categories.add(categoryRepository.save(category));
+			categoryIds.add(category.getId());
+		}
+		List<ExpenseStatus> statuses = new ArrayList<>();
+		for (String name : List.of("Pending", "Approved", "Rejected")) {
+			ExpenseStatus status = new ExpenseStatus();
+			status.setName(name);
+			status.setStatus(true);
+			statuses.add(expenseStatusRepository.save(status));
+		}
+		int[][] limits = {{10000, 20000, 30000}, {15000, 25000, 40000}, {10000, 25000, 50000}};
+		String[] packageNames = {"Silver", "Gold", "Platinum"};
+		CategoryPackage[][] packages = new CategoryPackage[3][3];
+		for (int c = 0; c < 3; c++) {
+			for (int p = 0; p < 3; p++) {
+				CategoryPackage categoryPackage = new CategoryPackage();
+				categoryPackage.setCategory(categories.get(c));
+				categoryPackage.setPackageName(packageNames[p]);
+				categoryPackage.setExpenseLimit(limits[c][p]);
+				packages[c][p] = categoryPackageRepository.save(categoryPackage);
+			}
+		}
+		// Associate: Silver; Software Engineer: Gold; Senior: Gold/Platinum; Manager: Platinum
+		int[][] tiers = {{0, 0, 0}, {1, 1, 1}, {1, 2, 1}, {2, 2, 2}};
+		for (int r = 0; r < tiers.length; r++) {
+			for (int c = 0; c < 3; c++) {
+				RoleCategoryPackage roleCategoryPackage = new RoleCategoryPackage();
+				roleCategoryPackage.setRole(roles.get(r + 1));
+				roleCategoryPackage.setCategoryPackage(packages[c][tiers[r][c]]);
+				roleCategoryPackageRepository.save(roleCategoryPackage);
+				rolePackages.add(new int[]{roles.get(r + 1).getId(), packages[c][tiers[r][c]].getId()});
+			}
+		}
+
+		Random random = new Random(settings.seed());
+		List<Employee> employees = new ArrayList<>();
+		for (int i = 1; i <= settings.employees(); i++) {
+			Employee employee = new Employee();
+			employee.setName("Employee " + i);
+			employee.setEmail("employee" + i + "@example.com");
+			employee.setRole(roles.get(1 + random.nextInt(4)));
+			employees.add(employee);
+		}
+		employeeRepository.saveAll(employees).forEach(employee -> employeeIds.add(employee.getId()));
+
+		// History, plus enough pending expenses for every approval of the run (20% headroom over the mix share;
+		// approvals beyond that are reported as not issued and fail the gate)
+		long approvals = (long) Math.ceil(settings.rate() * (settings.warmupSeconds() + settings.durationSeconds()) * settings.share("approve") * 1.2);
+		List<Expense> expenses = new ArrayList<>();
+		LocalDateTime now = LocalDateTime.now();
+		for (long i = 0; i < settings.seededExpenses() + approvals; i++) {
+			boolean pending = i >= settings.seededExpenses() || random.nextInt(4) == 0;
+			Expense expense = new Expense();
+			expense.setEmployee(employees.get(random.nextInt(employees.size())));
+			expense.setCategory(categories.get(random.nextInt(categories.size())));
+			expense.setStatus(pending ? statuses.get(0) : statuses.get(1 + random.nextInt(2)));
+			expense.setAmount(100 + random.nextInt(30000));
+			expense.setDescription("Seeded expense " + i);
+			expense.setSubmitDate(now.minusMinutes(settings.seededExpenses() + approvals - i));
+			expenses.add(expense);
+		}
+		for (int from = 0; from < expenses.size(); from += 1000) {
+			for (Expense expense : expenseRepository.saveAll(expenses.subList(from, Math.min(expenses.size(), from + 1000)))) {
+				if (expense.getStatus().getId() == statuses.get(0).getId()) {
+					pendingExpenseIds.add(expense.getId());
+				}
+			}
+		}
+	}
+
+	@Test
+	void openLoopTrafficMix() throws Exception {
+		Map<String, OpenLoopLoadGenerator.Operation> operations = new LinkedHashMap<>();
+		operations.put("submit", random -> post("/api/expenses", Map.of(
+				"employee", Map.of("id", pick(employeeIds, random)),
+				"category", Map.of("id", pick(categoryIds, random)),
+				"amount", 100 + random.nextInt(30000),
+				"description", "Load test expense")));
+		operations.put("validate", random -> {
+			int[] rolePackage = rolePackages.get(random.nextInt(rolePackages.size()));
+			return post("/api/expenses/validate", Map.of(
+					"roleId", rolePackage[0],
+					"categoryPackageId", rolePackage[1],
+					"expenseAmount", 100 + random.nextInt(50000)));
+		});
+		operations.put("approve", random -> {
+			int statusId = random.nextInt(5) == 0 ? 3 : 2;  // Mostly approvals, some rejections
+			Integer expenseId = pendingExpenseIds.poll();
+			if (expenseId == null) {
+				return null;  // Out of pending expenses: reported as not issued rather than sent for a decided one
+			}
+			return request("/api/expenses/" + expenseId + "/status?statusId=" + statusId)
+					.method("PATCH", HttpRequest.BodyPublishers.noBody()).build();
+		});
+		operations.put("history", random -> {
+			String category = random.nextBoolean() ? "" : "&categoryName="
+					+ URLEncoder.encode(CATEGORIES[random.nextInt(CATEGORIES.length)], StandardCharsets.UTF_8);
+			return request("/api/expenses/history?statusId=" + (1 + random.nextInt(3)) + category).GET().build();
+		});
+
+		OpenLoopLoadGenerator generator = new OpenLoopLoadGenerator(settings, operations);
+		Map<String, OpenLoopLoadGenerator.Result> results = generator.run();
+
+		LatencyReport report = new LatencyReport(settings, results, generator);
+		report.compareWithBaseline(objectMapper);
+		Path written = report.write(objectMapper);
+		System.out.print(report.summary());
+		System.out.println("Load test report: " + written.toAbsolutePath());
+
+		List<String> violations = report.gateViolations();
+		assertTrue(violations.isEmpty(), "Release gate failed: " + violations);
+	}
+
+	private HttpRequest post(String path, Map<String, Object> body) {
+		try {
+			return request(path)
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+					.build();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private HttpRequest.Builder request(String path) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).timeout(REQUEST_TIMEOUT);
+	}
+
+	private static int pick(List<Integer> ids, Random random) {
+		return ids.get(random.nextInt(ids.size()));
+	}
+}
@@ -0,0 +1,184 @@
+package com.example.expensereimbursement.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Report of one load test run.
+ * Written to the report directory as report-&lt;timestamp&gt;.json (also copied to latest.json) with the settings
+ * and, per operation, the throughput, error count and the percentiles of the corrected response time and the
+ * service time; the full percentile distribution of each operation goes next to it as a .hgrm file. A run can be
+ * compared with an earlier report (load-test.baseline) and checked against the release gates.
+ */
+class LatencyReport {
+
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+	private static final double NANOS_PER_MS = 1_000_000.0;
+
+	private final LoadTestSettings settings;
+
+	private final Map<String, OpenLoopLoadGenerator.Result> results;
+
+	private final Map<String, Object> report = new LinkedHashMap<>();
+
+	LatencyReport(LoadTestSettings settings, Map<String, OpenLoopLoadGenerator.Result> results,
+				  OpenLoopLoadGenerator generator) {
+		this.settings = settings;
+		this.results = results;
+
+		report.put("finishedAt", LocalDateTime.now().toString());
+		report.put("java", System.getProperty("java.version"));
+		report.put("processors", Runtime.getRuntime().availableProcessors());
+		report.put("settings", settings.toMap());
+		report.put("maxInFlight", generator.getMaxInFlight());
+		report.put("maxSendDelayMs", round(generator.getMaxSendDelayMs()));
+
+		Map<String, Object> operations = new LinkedHashMap<>();
+		Histogram allResponseTimes = new Histogram(3);
+		long errors = 0;
+		long notIssued = 0;
+		for (Map.Entry<String, OpenLoopLoadGenerator.Result> entry : results.entrySet()) {
+			OpenLoopLoadGenerator.Result result = entry.getValue();
+			Map<String, Object> operation = new LinkedHashMap<>();
+			operation.put("count", result.responseTime.getTotalCount());
+			operation.put("errors", result.errors.get());
+			operation.put("notIssued", result.notIssued.get());
+			operation.put("throughputPerSecond", round((double) result.responseTime.getTotalCount() / settings.durationSeconds()));
+			operation.put("responseTimeMs", percentiles(result.responseTime));
+			operation.put("serviceTimeMs", percentiles(result.serviceTime));
+			operations.put(entry.getKey(), operation);
+			allResponseTimes.add(result.responseTime);
+			errors += result.errors.get();
+			notIssued += result.notIssued.get();
+		}
+		Map<String, Object> total = new LinkedHashMap<>();
+		total.put("count", allResponseTimes.getTotalCount());
+		total.put("errors", errors);
+		total.put("notIssued", notIssued);
+		total.put("throughputPerSecond", round((double) allResponseTimes.getTotalCount() / settings.durationSeconds()));
+		total.put("responseTimeMs", percentiles(allResponseTimes));
+		report.put("operations", operations);
+		report.put("total", total);
+	}
+
+	/**
+	 * Adds the p99 of the baseline run next to each operation's p99, if a baseline is configured.
+	 */
+	void compareWithBaseline(ObjectMapper objectMapper) throws IOException {
+		if (settings.baseline() == null) {
+			return;
+		}
+		JsonNode baseline = objectMapper.readTree(Path.of(settings.baseline()).toFile());
+		Map<String, Object> comparison = new LinkedHashMap<>();
+		for (String name : results.keySet()) {
+			JsonNode previous = baseline.path("operations").path(name).path("responseTimeMs").path("p99");
+			if (previous.isNumber()) {
+				double current = p99Ms(name);
+				Map<String, Object> delta = new LinkedHashMap<>();
+				delta.put("baselineP99", previous.asDouble());
+				delta.put("p99", current);
+				delta.put("change", previous.asDouble() == 0 ? null : round(current / previous.asDouble() - 1));
+				comparison.put(name, delta);
+			}
+		}
+		report.put("baseline", settings.baseline());
+		report.put("comparedWithBaseline", comparison);
+	}
+
+	/**
+	 * Writes the JSON report, latest.json and the percentile distributions.
+	 * @return The path of the JSON report
+	 */
+	Path write(ObjectMapper objectMapper) throws IOException {
+		Path directory = Path.of(settings.reportDirectory());
+		Files.createDirectories(directory);
+		String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+
+		Path json = directory.resolve("report-" + stamp + ".json");
+		objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValue(json.toFile(), report);
+		Files.copy(json, directory.resolve("latest.json"), StandardCopyOption.REPLACE_EXISTING);
+
+		for (Map.Entry<String, OpenLoopLoadGenerator.Result> entry : results.entrySet()) {
+			try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve("report-" + stamp + "-" + entry.getKey() + ".hgrm")))) {
+				entry.getValue().responseTime.outputPercentileDistribution(out, NANOS_PER_MS);
+			}
+		}
+		return json;
+	}
+
+	/**
+	 * @return One message per violated release gate; empty if the run passes
+	 */
+	List<String> gateViolations() {
+		List<String> violations = new ArrayList<>();
+		long count = 0;
+		long errors = 0;
+		for (Map.Entry<String, OpenLoopLoadGenerator.Result> entry : results.entrySet()) {
+			count += entry.getValue().responseTime.getTotalCount();
+			errors += entry.getValue().errors.get();
+			// A skipped request would make the mix, and so the latencies, differ from the configured one
+			if (entry.getValue().notIssued.get() > 0) {
+				violations.add(entry.getKey() + ": " + entry.getValue().notIssued.get() + " scheduled requests were not issued");
+			}
+			if (settings.p99MaxMs() != null && p99Ms(entry.getKey()) > settings.p99MaxMs()) {
+				violations.add(entry.getKey() + ": p99 " + p99Ms(entry.getKey()) + " ms exceeds " + settings.p99MaxMs() + " ms");
+			}
+		}
+		if (count == 0) {
+			violations.add("No requests were recorded.");
+		} else if ((double) errors / count > settings.maxErrorRate()) {
+			violations.add("Error rate " + round((double) errors / count) + " exceeds " + settings.maxErrorRate());
+		}
+		return violations;
+	}
+
+	/**
+	 * @return A one-line-per-operation summary for the console
+	 */
+	String summary() {
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format("Load test: %.0f req/s for %d s (seed %d)%n", settings.rate(), settings.durationSeconds(), settings.seed()));
+		for (Map.Entry<String, OpenLoopLoadGenerator.Result> entry : results.entrySet()) {
+			Histogram histogram = entry.getValue().responseTime;
+			summary.append(String.format("  %-10s %7d requests, %4d errors, %4d not issued, p50 %8.2f ms, p99 %8.2f ms, p99.9 %8.2f ms, max %8.2f ms%n",
+					entry.getKey(), histogram.getTotalCount(), entry.getValue().errors.get(), entry.getValue().notIssued.get(),
+					histogram.getValueAtPercentile(50) / NANOS_PER_MS, histogram.getValueAtPercentile(99) / NANOS_PER_MS,
+					histogram.getValueAtPercentile(99.9) / NANOS_PER_MS, histogram.getMaxValue() / NANOS_PER_MS));
+		}
+		return summary.toString();
+	}
+
+	private double p99Ms(String operation) {
+		return round(results.get(operation).responseTime.getValueAtPercentile(99) / NANOS_PER_MS);
+	}
+
+	private static Map<String, Object> percentiles(Histogram histogram) {
+		Map<String, Object> percentiles = new LinkedHashMap<>();
+		for (double percentile : PERCENTILES) {
+			String name = "p" + (percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile));
+			percentiles.put(name, round(histogram.getValueAtPercentile(percentile) / NANOS_PER_MS));
+		}
+		percentiles.put("max", round(histogram.getMaxValue() / NANOS_PER_MS));
+		percentiles.put("mean", round(histogram.getMean() / NANOS_PER_MS));
+		return percentiles;
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 1000) / 1000.0;
+	}
+}
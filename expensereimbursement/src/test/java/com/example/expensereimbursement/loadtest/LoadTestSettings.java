@@ -0,0 +1,84 @@
+package com.example.expensereimbursement.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parameters of a load test run, read from system properties (mvn -Pload-test test -Dload-test.rate=500 ...).
+ * The same settings and seed produce the same request sequence, so runs are comparable.
+ */
+record LoadTestSettings(
+		double rate,                        // Requests started per second, independent of how fast they complete
+		int warmupSeconds,                  // Traffic before this is sent but not recorded
+		int durationSeconds,                // Recorded traffic
+		Map<String, Integer> mix,           // Operation name -> weight
+		long seed,                          // Seed of the operation and parameter choices
+		int employees,                      // Seeded employees
+		int seededExpenses,                 // Seeded expense history
+		Double p99MaxMs,                    // Release gate on the corrected p99 of every operation; null = report only
+		double maxErrorRate,                // Release gate on the share of failed requests
+		String reportDirectory,
+		String baseline) {                  // Report of an earlier run to compare with; null = none
+
+	static LoadTestSettings fromSystemProperties() {
+		String p99 = System.getProperty("load-test.p99-max-ms", "");
+		String baseline = System.getProperty("load-test.baseline", "");
+		return new LoadTestSettings(
+				Double.parseDouble(System.getProperty("load-test.rate", "200")),
+				Integer.getInteger("load-test.warmup-seconds", 10),
+				Integer.getInteger("load-test.duration-seconds", 60),
+				parseMix(System.getProperty("load-test.mix", "submit:40,validate:30,approve:10,history:20")),
+				Long.getLong("load-test.seed", 42),
+				Integer.getInteger("load-test.employees", 500),
+				Integer.getInteger("load-test.seeded-expenses", 20000),
+				p99.isBlank() ? null : Double.parseDouble(p99),
+				Double.parseDouble(System.getProperty("load-test.max-error-rate", "0.01")),
+				System.getProperty("load-test.report-dir", "target/load-test"),
+				baseline.isBlank() ? null : baseline);
+	}
+
+	// Parses "submit:40,validate:30,..."
+	static Map<String, Integer> parseMix(String mix) {
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		for (String part : mix.split(",")) {
+			String[] nameAndWeight = part.trim().split(":");
+			if (nameAndWeight.length != 2) {
+				throw new IllegalArgumentException("Invalid load-test.mix entry: " + part);
+			}
+			int weight = Integer.parseInt(nameAndWeight[1].trim());
+			if (weight > 0) {
+				weights.put(nameAndWeight[0].trim(), weight);
+			}
+		}
+		if (weights.isEmpty()) {
+			throw new IllegalArgumentException("load-test.mix has no operation with a positive weight.");
+		}
+		return weights;
+	}
+
+	/**
+	 * @param operation An operation name
+	 * @return The share of all requests the operation gets
+	 */
+	double share(String operation) {
+		int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+		return (double) mix.getOrDefault(operation, 0) / total;
+	}
+
+	/**
+	 * @return The settings as they are written into the report
+	 */
+	Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("rate", rate);
+		map.put("warmupSeconds", warmupSeconds);
+		map.put("durationSeconds", durationSeconds);
+		map.put("mix", mix);
+		map.put("seed", seed);
+		map.put("employees", employees);
+		map.put("seededExpenses", seededExpenses);
+		map.put("p99MaxMs", p99MaxMs);
+		map.put("maxErrorRate", maxErrorRate);
+		return map;
+	}
+}
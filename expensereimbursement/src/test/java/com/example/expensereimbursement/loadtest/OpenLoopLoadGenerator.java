@@ -0,0 +1,164 @@
+package com.example.expensereimbursement.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load generator.
+ * Requests are started on a fixed schedule (one every 1/rate seconds) whether or not earlier ones have completed,
+ * as independent users would send them; a closed loop of clients waiting for their previous response would slow
+ * down with the server and hide its stalls. Latency is measured from the request's intended start time on the
+ * schedule, not from when it was actually sent, which corrects for coordinated omission: when the server (or the
+ * generator) stalls, every request scheduled during the stall is charged the time it waited.
+ * The service time (actual send to response) is recorded as well, to tell queueing from processing.
+ */
+class OpenLoopLoadGenerator {
+
+	/**
+	 * One kind of request of the traffic mix.
+	 */
+	interface Operation {
+		/**
+		 * Builds the next request. Called on the scheduling thread only, so implementations may keep plain state
+		 * and draw parameters from the shared random in a reproducible order.
+		 * @param random The seeded random of the run
+		 * @return The request to send, or null if the operation has nothing left to work on (counted as not issued)
+		 */
+		HttpRequest next(Random random);
+	}
+
+	/**
+	 * Latencies and counts of one operation.
+	 */
+	static final class Result {
+		final Histogram responseTime = new ConcurrentHistogram(3);  // Intended start to response, nanoseconds
+		final Histogram serviceTime = new ConcurrentHistogram(3);   // Actual send to response, nanoseconds
+		final AtomicLong errors = new AtomicLong();
+		final AtomicLong notIssued = new AtomicLong();  // Scheduled but skipped: the operation had no request to send
+	}
+
+	private final LoadTestSettings settings;
+
+	private final Map<String, Operation> operations;
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	// Largest delay between a request's intended and actual start; shows whether the generator kept up
+	private final AtomicLong maxSendDelayNanos = new AtomicLong();
+
+	OpenLoopLoadGenerator(LoadTestSettings settings, Map<String, Operation> operations) {
+		this.settings = settings;
+		this.operations = operations;
+	}
+
+	/**
+	 * Runs the warm-up and the measured period and waits for the outstanding requests.
+	 * @return The results per operation, in mix order
+	 */
+	Map<String, Result> run() {
+		Map<String, Result> results = new LinkedHashMap<>();
+		String[] names = settings.mix().keySet().toArray(String[]::new);
+		int[] cumulativeWeights = new int[names.length];
+		int totalWeight = 0;
+		for (int i = 0; i < names.length; i++) {
+			if (!operations.containsKey(names[i])) {
+				throw new IllegalArgumentException("Unknown operation in load-test.mix: " + names[i] + " (known: " + operations.keySet() + ")");
+			}
+			totalWeight += settings.mix().get(names[i]);
+			cumulativeWeights[i] = totalWeight;
+			results.put(names[i], new Result());
+		}
+
+		Random random = new Random(settings.seed());
+		long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / settings.rate());
+		long start = System.nanoTime();
+		long measureFrom = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds());
+		long end = measureFrom + TimeUnit.SECONDS.toNanos(settings.durationSeconds());
+
+		try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (long i = 0; ; i++) {
+				long intended = start + i * intervalNanos;
+				if (intended >= end) {
+					break;
+				}
+				int pick = random.nextInt(totalWeight);
+				int index = 0;
+				while (cumulativeWeights[index] <= pick) {
+					index++;
+				}
+				HttpRequest request = operations.get(names[index]).next(random);
+				Result result = intended >= measureFrom ? results.get(names[index]) : null;
+				if (request == null) {
+					if (result != null) {
+						result.notIssued.incrementAndGet();
+					}
+					continue;
+				}
+
+				long wait;
+				while ((wait = intended - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(wait);
+				}
+				senders.execute(() -> send(request, intended, result));
+			}
+		}  // Closing the executor waits for the outstanding requests
+		return results;
+	}
+
+	/**
+	 * @return The most requests outstanding at once
+	 */
+	int getMaxInFlight() {
+		return maxInFlight.get();
+	}
+
+	/**
+	 * @return The largest delay between a request's intended and actual send time, in milliseconds
+	 */
+	double getMaxSendDelayMs() {
+		return maxSendDelayNanos.get() / 1_000_000.0;
+	}
+
+	private void send(HttpRequest request, long intended, Result result) {
+		long sent = System.nanoTime();
+		maxSendDelayNanos.accumulateAndGet(sent - intended, Math::max);
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		boolean ok;
+		try {
+			HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+			ok = response.statusCode() / 100 == 2;
+		} catch (Exception e) {
+			ok = false;
+		}
+		long done = System.nanoTime();
+		inFlight.decrementAndGet();
+		if (result != null) {
+			result.responseTime.recordValue(done - intended);
+			result.serviceTime.recordValue(done - sent);
+			if (!ok) {
+				result.errors.incrementAndGet();
+			}
+		}
+	}
+}
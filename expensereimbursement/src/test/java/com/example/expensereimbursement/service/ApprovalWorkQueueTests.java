@@ -0,0 +1,202 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.ExpenseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ApprovalWorkQueueTests {
+
+	private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+	private static final int ENGINEER = 1;
+
+	private static final int TRAVEL = 1;
+
+	private static final int MEALS = 2;
+
+	private static final int ALICE = 100;
+
+	private static final int BOB = 101;
+
+	// Rows of the pending expenses: id, employeeId, roleId, categoryId, amount, submitDate
+	private final List<Object[]> pendingRows = new ArrayList<>();
+
+	private final ShardRouter shardRouter = new ShardRouter();
+
+	// Runs while the pending expenses are being read by rebuild()
+	private Runnable whileLoading = () -> { };
+
+	private ExpenseRepository expenseRepository;
+
+	private ExpensePolicyMatrix expensePolicyMatrix;
+
+	@BeforeEach
+	void setUp() {
+		expenseRepository = mock(ExpenseRepository.class);
+		when(expenseRepository.findQueueRowsByStatusId(1)).thenAnswer(invocation -> {
+			List<Object[]> rows = new ArrayList<>(pendingRows);
+			whileLoading.run();
+			return rows;
+		});
+		// Travel is limited to 1000 for engineers; there is no package for meals
+		expensePolicyMatrix = mock(ExpensePolicyMatrix.class);
+		when(expensePolicyMatrix.limitForCategory(anyInt(), anyInt())).thenReturn(-1);
+		when(expensePolicyMatrix.limitForCategory(ENGINEER, TRAVEL)).thenReturn(1000);
+
+		pendingRows.add(new Object[]{1, 10, ENGINEER, TRAVEL, 500, NOW.minusDays(1)});
+		pendingRows.add(new Object[]{2, 11, ENGINEER, TRAVEL, 800, NOW.minusDays(3)});
+		pendingRows.add(new Object[]{3, 12, ENGINEER, TRAVEL, 1500, NOW});             // Over the limit
+		pendingRows.add(new Object[]{4, 13, ENGINEER, TRAVEL, 300, NOW.minusDays(3)});  // Same age as 2, smaller
+		pendingRows.add(new Object[]{5, 14, ENGINEER, MEALS, 50, NOW.minusDays(2)});    // No package: over the limit
+	}
+
+	@AfterEach
+	void tearDown() {
+		shardRouter.close();
+	}
+
+	@Test
+	void ordersByOverLimitThenAgeThenAmount() {
+		ApprovalWorkQueue queue = queue("none", 900);
+
+		assertEquals(List.of(5, 3, 2, 4, 1), expenseIds(queue.peek(null, 10)));
+		assertEquals(List.of(5, 3), expenseIds(queue.peek(null, 2)));
+	}
+
+	@Test
+	void mergesPartitionsInPriorityOrder() {
+		ApprovalWorkQueue queue = queue("category", 900);
+
+		assertEquals(List.of(3, 2, 4, 1), expenseIds(queue.peek(TRAVEL, 10)));
+		assertEquals(List.of(5), expenseIds(queue.peek(MEALS, 10)));
+		assertEquals(List.of(5, 3, 2, 4, 1), expenseIds(queue.peek(null, 10)));
+		assertEquals(4, queue.getPartitionSizes().get(TRAVEL));
+	}
+
+	@Test
+	void neverHandsTheSameExpenseToTwoManagers() {
+		ApprovalWorkQueue queue = queue("none", 900);
+
+		List<ApprovalQueueItem> alices = queue.claim(null, ALICE, 2);
+		assertEquals(List.of(5, 3), expenseIds(alices));
+		assertEquals(ALICE, alices.get(0).getClaimedBy());
+		assertEquals(List.of(2, 4), expenseIds(queue.claim(null, BOB, 2)));
+
+		// Claiming again renews a manager's own leases and skips the other manager's
+		assertEquals(List.of(5, 3, 1), expenseIds(queue.claim(null, ALICE, 3)));
+		assertEquals(BOB, queue.peek(null, 10).get(2).getClaimedBy());
+	}
+
+	@Test
+	void expiredLeasesCanBeClaimedByOthers() {
+		ApprovalWorkQueue queue = queue("none", 0);
+
+		assertEquals(List.of(5, 3), expenseIds(queue.claim(null, ALICE, 2)));
+		assertNull(queue.peek(null, 1).get(0).getClaimedBy());
+		assertEquals(List.of(5, 3), expenseIds(queue.claim(null, BOB, 2)));
+		assertTrue(queue.beginDecision(5, ALICE));
+	}
+
+	@Test
+	void onlyTheHolderReleasesALease() {
+		ApprovalWorkQueue queue = queue("none", 900);
+		queue.claim(null, ALICE, 1);
+
+		assertFalse(queue.release(5, BOB));
+		assertFalse(queue.release(3, ALICE));
+		assertTrue(queue.release(5, ALICE));
+		assertEquals(List.of(5), expenseIds(queue.claim(null, BOB, 1)));
+	}
+
+	@Test
+	void onlyTheHolderDecidesAClaimedExpense() {
+		ApprovalWorkQueue queue = queue("none", 900);
+		queue.claim(null, ALICE, 1);
+
+		assertFalse(queue.beginDecision(5, BOB));
+		assertFalse(queue.beginDecision(5, null));
+		assertTrue(queue.beginDecision(3, null));
+		assertTrue(queue.beginDecision(5, ALICE));
+
+		// An expense being decided is not handed out
+		assertEquals(List.of(2), expenseIds(queue.claim(null, BOB, 1)));
+		queue.finishDecision(3);
+		assertEquals(List.of(3, 2), expenseIds(queue.claim(null, BOB, 2)));
+
+		// A decided expense leaves the queue with its lease
+		queue.onExpenseEvent(event(ExpenseEvent.Type.APPROVED, 5, 2));
+		queue.finishDecision(5);
+		assertEquals(List.of(3, 2, 4, 1), expenseIds(queue.peek(null, 10)));
+	}
+
+	@Test
+	void expensesDecidedWhileRebuildingAreNotReAdded() {
+		ApprovalWorkQueue queue = queue("none", 900, false);
+		// Expense 3 is decided after its pending row was read; expense 6 is submitted while the rows are read
+		whileLoading = () -> {
+			queue.onExpenseEvent(event(ExpenseEvent.Type.REJECTED, 3, 3));
+			queue.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 6, 1));
+		};
+		queue.rebuild();
+
+		assertEquals(List.of(5, 2, 4, 1, 6), expenseIds(queue.peek(null, 10)));
+
+		// After the rebuild, decisions are applied directly and nothing is remembered
+		queue.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 3, 1));
+		assertEquals(6, queue.peek(null, 10).size());
+	}
+
+	private ApprovalWorkQueue queue(String partitionBy, long leaseSeconds) {
+		return queue(partitionBy, leaseSeconds, true);
+	}
+
+	private ApprovalWorkQueue queue(String partitionBy, long leaseSeconds, boolean rebuild) {
+		ApprovalWorkQueue queue = new ApprovalWorkQueue(List.of("overLimit", "age", "amount"), partitionBy, leaseSeconds);
+		ReflectionTestUtils.setField(queue, "expenseRepository", expenseRepository);
+		ReflectionTestUtils.setField(queue, "expensePolicyMatrix", expensePolicyMatrix);
+		ReflectionTestUtils.setField(queue, "shardRouter", shardRouter);
+		if (rebuild) {
+			queue.rebuild();
+		}
+		return queue;
+	}
+
+	private static List<Integer> expenseIds(List<ApprovalQueueItem> items) {
+		return items.stream().map(ApprovalQueueItem::getExpenseId).toList();
+	}
+
+	private static ExpenseEvent event(ExpenseEvent.Type type, int expenseId, int statusId) {
+		Role role = new Role();
+		role.setId(ENGINEER);
+		Employee employee = new Employee();
+		employee.setId(20);
+		employee.setRole(role);
+		Category category = new Category();
+		category.setId(TRAVEL);
+		ExpenseStatus status = new ExpenseStatus();
+		status.setId(statusId);
+		Expense expense = new Expense();
+		expense.setId(expenseId);
+		expense.setEmployee(employee);
+		expense.setCategory(category);
+		expense.setStatus(status);
+		expense.setAmount(100);
+		expense.setSubmitDate(NOW.plusDays(1));
+		return new ExpenseEvent(type, expense, 1);
+	}
+}
@@ -0,0 +1,303 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A small chunk size so a run spans several chunks; the scheduled run is pushed out of the way, the tests call run()
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:auto_approval;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"expense.auto-approval.enabled=true",
+		"expense.auto-approval.interval-ms=3600000",
+		"expense.auto-approval.max-amount=5000",
+		"expense.auto-approval.max-package-limit-ratio=0",
+		"expense.auto-approval.chunk-size=3",
+		"expense.auto-approval.parallelism=2",
+		"expense.audit-journal.directory=target/test-data/auto-approval/audit-journal"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AutoApprovalEngineTests {
+
+	private static final int PENDING = 1;
+
+	private static final int APPROVED = 2;
+
+	private static final int REJECTED = 3;
+
+	@Autowired
+	private AutoApprovalEngine engine;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private ExpenseStatusRepository expenseStatusRepository;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	@Autowired
+	private PayrollOutboxRepository payrollOutboxRepository;
+
+	private Employee engineer;
+
+	private Employee intern;
+
+	private Category travel;
+
+	private ExpenseStatus pending;
+
+	@BeforeAll
+	void seed() {
+		engineer = employee("Engineer", role("Engineer", true));
+		intern = employee("Intern", role("Intern", false));
+		travel = new Category();
+		travel.setName("Travel");
+		travel.setStatus(true);
+		categoryRepository.save(travel);
+		for (String name : List.of("Pending", "Approved", "Rejected")) {
+			ExpenseStatus status = new ExpenseStatus();
+			status.setName(name);
+			status.setStatus(true);
+			expenseStatusRepository.save(status);
+		}
+		pending = expenseStatusRepository.findById(PENDING).orElseThrow();
+	}
+
+	@Test
+	void approvesEligibleExpensesAcrossChunks() {
+		List<Integer> eligible = new ArrayList<>();
+		List<Integer> heldBack = new ArrayList<>();
+		for (int i = 0; i < 11; i++) {
+			if (i % 4 == 3) {
+				heldBack.add(pendingExpense(engineer, 5001));
+			} else if (i % 4 == 2) {
+				heldBack.add(pendingExpense(intern, 100));
+			} else {
+				eligible.add(pendingExpense(engineer, 100 * (i + 1)));
+			}
+		}
+
+		engine.run();
+
+		for (int id : eligible) {
+			Expense expense = expenseRepository.findById(id).orElseThrow();
+			assertEquals(APPROVED, expense.getStatus().getId());
+			assertNotNull(expense.getApprovalDate());
+			assertEquals(1, outboxEntries(id));
+		}
+		for (int id : heldBack) {
+			Expense expense = expenseRepository.findById(id).orElseThrow();
+			assertEquals(PENDING, expense.getStatus().getId());
+			assertNull(expense.getApprovalDate());
+			assertEquals(0, outboxEntries(id));
+		}
+		@SuppressWarnings("unchecked")
+		Map<String, Object> lastRun = (Map<String, Object>) engine.getStatistics().get("lastRun");
+		assertEquals((long) eligible.size(), lastRun.get("approved"));
+		assertEquals(0L, lastRun.get("skippedLockedOrChanged"));
+	}
+
+	@Test
+	void managersCannotDecideAnExpenseTwice() {
+		int autoApproved = pendingExpense(engineer, 200);
+		engine.run();
+		assertEquals("Error: Expense has already been approved or rejected.", expenseService.updateExpenseStatus(autoApproved, REJECTED));
+		assertEquals(APPROVED, expenseRepository.findById(autoApproved).orElseThrow().getStatus().getId());
+
+		int rejected = pendingExpense(intern, 200);
+		assertEquals("Expense status updated successfully!", expenseService.updateExpenseStatus(rejected, REJECTED));
+		assertEquals("Error: Expense has already been approved or rejected.", expenseService.updateExpenseStatus(rejected, APPROVED));
+		assertEquals(REJECTED, expenseRepository.findById(rejected).orElseThrow().getStatus().getId());
+		assertEquals(0, outboxEntries(rejected));
+		assertEquals(1, outboxEntries(autoApproved));
+	}
+
+	@Test
+	void onlyTheManagerHoldingTheClaimDecidesIt() {
+		Expense submitted = new Expense();
+		submitted.setEmployee(engineer);
+		submitted.setCategory(travel);
+		submitted.setAmount(6000);
+		submitted.setDescription("Claimed");
+		assertEquals("Expense submitted successfully!", expenseService.addExpense(submitted));
+		int expenseId = submitted.getId();
+		int manager = intern.getId();
+		assertTrue(expenseService.claimApprovalQueueItems(manager, null, 100).stream()
+				.anyMatch(item -> item.getExpenseId() == expenseId));
+
+		assertEquals("Error: The expense is claimed by another manager.", expenseService.updateExpenseStatus(expenseId, APPROVED));
+		assertEquals("Error: The expense is claimed by another manager.", expenseService.updateExpenseStatus(expenseId, APPROVED, engineer.getId()));
+		assertEquals("Expense status updated successfully!", expenseService.updateExpenseStatus(expenseId, REJECTED, manager));
+		assertTrue(expenseService.getApprovalQueue(null, 100).stream().noneMatch(item -> item.getExpenseId() == expenseId));
+	}
+
+	@Test
+	void leavesClaimedExpensesToTheManagerHoldingTheClaim() {
+		Expense submitted = new Expense();
+		submitted.setEmployee(engineer);
+		submitted.setCategory(travel);
+		submitted.setAmount(100);
+		submitted.setDescription("Claimed, eligible");
+		assertEquals("Expense submitted successfully!", expenseService.addExpense(submitted));
+		int expenseId = submitted.getId();
+		int manager = intern.getId();
+		assertTrue(expenseService.claimApprovalQueueItems(manager, null, 100).stream()
+				.anyMatch(item -> item.getExpenseId() == expenseId));
+
+		engine.run();
+
+		assertEquals(PENDING, expenseRepository.findById(expenseId).orElseThrow().getStatus().getId());
+		@SuppressWarnings("unchecked")
+		Map<String, Object> lastRun = (Map<String, Object>) engine.getStatistics().get("lastRun");
+		assertTrue((Long) lastRun.get("skippedClaimed") >= 1);
+		assertEquals("Expense status updated successfully!", expenseService.updateExpenseStatus(expenseId, REJECTED, manager));
+		assertEquals(0, outboxEntries(expenseId));
+	}
+
+	@Test
+	void journalsWhoDecidedEachExpense() throws Exception {
+		Instant since = Instant.now();
+		Expense autoApproved = submittedExpense(100, "Decided by the system");
+		Expense rejected = submittedExpense(6000, "Decided by a manager");
+		engine.run();
+		int manager = intern.getId();
+		assertEquals("Expense status updated successfully!", expenseService.updateExpenseStatus(rejected.getId(), REJECTED, manager));
+
+		List<ExpenseAuditRecord> approvedTrail = auditTrail(autoApproved.getId(), since, 2);
+		assertEquals(engineer.getId(), approvedTrail.get(0).getActorId());
+		assertEquals(ExpenseEvent.SYSTEM_ACTOR, approvedTrail.get(1).getActorId());
+		List<ExpenseAuditRecord> rejectedTrail = auditTrail(rejected.getId(), since, 2);
+		assertEquals(ExpenseEvent.Type.REJECTED, rejectedTrail.get(1).getType());
+		assertEquals(manager, rejectedTrail.get(1).getActorId());
+	}
+
+	@Test
+	void eachExpenseIsDecidedExactlyOnceUnderConcurrentDecisions() throws Exception {
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			ids.add(pendingExpense(engineer, 100 + i));
+		}
+		// Two managers per expense, one approving and one rejecting, racing each other and the auto-approval run
+		List<Callable<Boolean>> decisions = new ArrayList<>();
+		for (int id : ids) {
+			decisions.add(() -> expenseService.updateExpenseStatus(id, APPROVED).startsWith("Expense status updated"));
+			decisions.add(() -> expenseService.updateExpenseStatus(id, REJECTED).startsWith("Expense status updated"));
+		}
+		Collections.shuffle(decisions, new Random(7));
+
+		AtomicInteger managerDecisions = new AtomicInteger();
+		ExecutorService managers = Executors.newFixedThreadPool(4);
+		try {
+			Future<?> autoApproval = managers.submit(engine::run);
+			for (Future<Boolean> decision : managers.invokeAll(decisions)) {
+				if (decision.get()) {
+					managerDecisions.incrementAndGet();
+				}
+			}
+			autoApproval.get();
+		} finally {
+			managers.shutdown();
+		}
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> lastRun = (Map<String, Object>) engine.getStatistics().get("lastRun");
+		assertEquals(ids.size(), managerDecisions.get() + ((Long) lastRun.get("approved")).intValue());
+		for (int id : ids) {
+			int statusId = expenseRepository.findById(id).orElseThrow().getStatus().getId();
+			assertEquals(statusId == APPROVED ? 1 : 0, outboxEntries(id), "expense " + id);
+			assertTrue(statusId == APPROVED || statusId == REJECTED, "expense " + id);
+		}
+	}
+
+	private Role role(String name, boolean active) {
+		Role role = new Role();
+		role.setName(name);
+		role.setStatus(active);
+		return roleRepository.save(role);
+	}
+
+	private Employee employee(String name, Role role) {
+		Employee employee = new Employee();
+		employee.setName(name);
+		employee.setEmail(name.toLowerCase() + "@example.com");
+		employee.setRole(role);
+		return employeeRepository.save(employee);
+	}
+
+	private int pendingExpense(Employee employee, int amount) {
+		Expense expense = new Expense();
+		expense.setEmployee(employee);
+		expense.setCategory(travel);
+		expense.setStatus(pending);
+		expense.setAmount(amount);
+		expense.setDescription("Seeded");
+		expense.setSubmitDate(LocalDateTime.now());
+		return expenseRepository.save(expense).getId();
+	}
+
+	private long outboxEntries(int expenseId) {
+		return payrollOutboxRepository.findAll().stream().filter(entry -> entry.getExpenseId() == expenseId).count();
+	}
+
+	private Expense submittedExpense(int amount, String description) {
+		Expense expense = new Expense();
+		expense.setEmployee(engineer);
+		expense.setCategory(travel);
+		expense.setAmount(amount);
+		expense.setDescription(description);
+		assertEquals("Expense submitted successfully!", expenseService.addExpense(expense));
+		return expense;
+	}
+
+	// The journal is written in the background: waits until the expected records have been acknowledged.
+	// The journal outlives the in-memory database, so records of an earlier run with the same expense ID are skipped
+	private List<ExpenseAuditRecord> auditTrail(int expenseId, Instant since, int records) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		List<ExpenseAuditRecord> trail = List.of();
+		while (System.currentTimeMillis() < deadline) {
+			trail = expenseService.getExpenseAuditTrail(expenseId).stream()
+					.filter(record -> !record.getRecordedAt().isBefore(since))
+					.toList();
+			if (trail.size() >= records) {
+				break;
+			}
+			Thread.sleep(10);
+		}
+		assertEquals(records, trail.size());
+		return trail;
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AutoApprovalRulesTests {
+
+	private static final int ENGINEER = 1;
+
+	private static final int MANAGER = 2;
+
+	private static final int TRAVEL = 1;
+
+	private static final int MEDICAL = 2;
+
+	@Test
+	void appliesOnlyTheConfiguredRules() {
+		AutoApprovalRules rules = rules(0, List.of(), List.of(), 0);
+
+		assertEquals(List.of("activeRoleAndCategory"), rules.getRuleNames());
+		assertNull(rules.firstFailingRule(expense(ENGINEER, "Engineer", true, TRAVEL, "Travel", true, 1_000_000)));
+
+		assertEquals(List.of("activeRoleAndCategory", "maxAmount", "category", "role", "packageLimit"),
+				rules(5000, List.of("Travel"), List.of("Engineer"), 1.0).getRuleNames());
+	}
+
+	@Test
+	void holdsBackInactiveRolesAndCategories() {
+		AutoApprovalRules rules = rules(0, List.of(), List.of(), 0);
+
+		assertEquals("activeRoleAndCategory", rules.firstFailingRule(expense(ENGINEER, "Engineer", false, TRAVEL, "Travel", true, 100)));
+		assertEquals("activeRoleAndCategory", rules.firstFailingRule(expense(ENGINEER, "Engineer", true, TRAVEL, "Travel", false, 100)));
+	}
+
+	@Test
+	void reportsTheFirstFailingRuleInOrder() {
+		AutoApprovalRules rules = rules(5000, List.of(" travel "), List.of("ENGINEER"), 0.5);
+
+		assertNull(rules.firstFailingRule(expense(ENGINEER, "Engineer", true, TRAVEL, "Travel", true, 500)));
+		assertEquals("maxAmount", rules.firstFailingRule(expense(MANAGER, "Manager", true, MEDICAL, "Medical", true, 5001)));
+		assertEquals("category", rules.firstFailingRule(expense(MANAGER, "Manager", true, MEDICAL, "Medical", true, 5000)));
+		assertEquals("role", rules.firstFailingRule(expense(MANAGER, "Manager", true, TRAVEL, "Travel", true, 500)));
+		// Travel limit 2000 for engineers: at most half of it is approved automatically
+		assertNull(rules.firstFailingRule(expense(ENGINEER, "Engineer", true, TRAVEL, "Travel", true, 1000)));
+		assertEquals("packageLimit", rules.firstFailingRule(expense(ENGINEER, "Engineer", true, TRAVEL, "Travel", true, 1001)));
+	}
+
+	@Test
+	void holdsBackExpensesWithoutAPackageForTheirCategory() {
+		AutoApprovalRules rules = rules(0, List.of(), List.of(), 1.0);
+
+		assertNull(rules.firstFailingRule(expense(ENGINEER, "Engineer", true, TRAVEL, "Travel", true, 2000)));
+		assertEquals("packageLimit", rules.firstFailingRule(expense(ENGINEER, "Engineer", true, TRAVEL, "Travel", true, 2001)));
+		assertEquals("packageLimit", rules.firstFailingRule(expense(ENGINEER, "Engineer", true, MEDICAL, "Medical", true, 1)));
+	}
+
+	private static AutoApprovalRules rules(int maxAmount, List<String> categories, List<String> roles, double maxPackageLimitRatio) {
+		ExpensePolicyMatrix matrix = mock(ExpensePolicyMatrix.class);
+		when(matrix.limitForCategory(ENGINEER, TRAVEL)).thenReturn(2000);
+		when(matrix.limitForCategory(ENGINEER, MEDICAL)).thenReturn(-1);
+		when(matrix.limitForCategory(MANAGER, TRAVEL)).thenReturn(10000);
+		when(matrix.limitForCategory(MANAGER, MEDICAL)).thenReturn(10000);
+		AutoApprovalRules rules = new AutoApprovalRules(maxAmount, categories, roles, maxPackageLimitRatio);
+		ReflectionTestUtils.setField(rules, "expensePolicyMatrix", matrix);
+		return rules;
+	}
+
+	private static Expense expense(int roleId, String roleName, boolean roleActive, int categoryId, String categoryName,
+								   boolean categoryActive, int amount) {
+		Role role = new Role();
+		role.setId(roleId);
+		role.setName(roleName);
+		role.setStatus(roleActive);
+		Employee employee = new Employee();
+		employee.setRole(role);
+		Category category = new Category();
+		category.setId(categoryId);
+		category.setName(categoryName);
+		category.setStatus(categoryActive);
+		Expense expense = new Expense();
+		expense.setEmployee(employee);
+		expense.setCategory(category);
+		expense.setAmount(amount);
+		return expense;
+	}
+}
@@ -0,0 +1,161 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.ExpenseAuditRecord;
+import com.example.expensereimbursement.model.ExpenseEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseAuditJournalTests {
+
+	// Small segments so the tests roll over several segment files
+	private static final int SEGMENT_SIZE = ExpenseAuditJournal.RECORD_SIZE * 64;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replaysHistoryOfAnExpenseAcrossSegments() throws Exception {
+		ExpenseAuditJournal journal = open();
+		List<CompletableFuture<ExpenseAuditRecord>> acknowledgements = new ArrayList<>();
+		for (int expenseId = 1; expenseId <= 100; expenseId++) {
+			acknowledgements.add(journal.append(ExpenseEvent.Type.SUBMITTED, expenseId, 7, 7, 1000, 0, 1));
+		}
+		for (int expenseId = 1; expenseId <= 100; expenseId++) {
+			acknowledgements.add(journal.append(ExpenseEvent.Type.APPROVED, expenseId, 7, ExpenseEvent.SYSTEM_ACTOR, 1000, 1, 2));
+		}
+		CompletableFuture.allOf(acknowledgements.toArray(CompletableFuture[]::new)).get();
+
+		List<ExpenseAuditRecord> history = journal.history(42);
+		assertEquals(2, history.size());
+		assertEquals(ExpenseEvent.Type.SUBMITTED, history.get(0).getType());
+		assertEquals(ExpenseEvent.Type.APPROVED, history.get(1).getType());
+		assertEquals(2, history.get(1).getToStatusId());
+		assertEquals(7, history.get(0).getActorId());
+		assertEquals(ExpenseEvent.SYSTEM_ACTOR, history.get(1).getActorId());
+		assertTrue(segmentFiles().size() > 1);
+		journal.close();
+	}
+
+	@Test
+	void acknowledgedRecordsSurviveTheProcessBeingKilled() throws Exception {
+		// The writer runs in a JVM of its own, which is killed while it is still appending
+		Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+				"-cp", System.getProperty("java.class.path"),
+				KilledWriter.class.getName(), directory.toString(), String.valueOf(SEGMENT_SIZE))
+				.redirectError(ProcessBuilder.Redirect.INHERIT)
+				.start();
+		Set<Integer> acknowledged = new HashSet<>();
+		try (BufferedReader output = process.inputReader()) {
+			String line;
+			while (acknowledged.size() < 1000 && (line = output.readLine()) != null) {
+				acknowledged.add(Integer.parseInt(line));
+			}
+			process.destroyForcibly().waitFor();
+		}
+		assertEquals(1000, acknowledged.size());
+
+		ExpenseAuditJournal recovered = open();
+		Set<Integer> journaled = new HashSet<>();
+		long lastSequence = 0;
+		for (int expenseId = 0; expenseId < 50; expenseId++) {
+			for (ExpenseAuditRecord record : recovered.history(expenseId)) {
+				journaled.add(record.getAmount());
+				lastSequence = Math.max(lastSequence, record.getSequence());
+			}
+		}
+		assertTrue(journaled.containsAll(acknowledged));
+		// No gaps: the journal resumes right after the last intact record
+		assertEquals(journaled.size(), lastSequence);
+
+		ExpenseAuditRecord next = recovered.append(ExpenseEvent.Type.REJECTED, 1, 3, 9, 5, 1, 3).get();
+		assertEquals(lastSequence + 1, next.getSequence());
+		recovered.close();
+	}
+
+	@Test
+	void onlyOneJournalWritesToADirectory() throws Exception {
+		ExpenseAuditJournal journal = open();
+		assertThrows(IllegalStateException.class, this::open);
+		journal.close();
+
+		ExpenseAuditJournal reopened = open();
+		reopened.close();
+	}
+
+	@Test
+	void discardsTornRecordAfterLastAcknowledgedOne() throws Exception {
+		ExpenseAuditJournal journal = open();
+		for (int i = 0; i < 70; i++) {
+			journal.append(ExpenseEvent.Type.SUBMITTED, i, 3, 3, i, 0, 1).get();
+		}
+		journal.close();
+
+		// Simulate a crash in the middle of writing the 71st record: a length header with a half-written payload
+		Path last = segmentFiles().get(segmentFiles().size() - 1);
+		try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+			ByteBuffer torn = ByteBuffer.allocate(ExpenseAuditJournal.RECORD_SIZE / 2);
+			torn.putInt(ExpenseAuditJournal.RECORD_SIZE - 8).putInt(12345).putLong(71);
+			torn.rewind();
+			channel.write(torn, (long) ExpenseAuditJournal.RECORD_SIZE * (70 - 64));
+		}
+
+		ExpenseAuditJournal recovered = open();
+		assertEquals(1, recovered.history(69).size());
+		assertEquals(0, recovered.history(70).size());
+
+		ExpenseAuditRecord next = recovered.append(ExpenseEvent.Type.SUBMITTED, 70, 3, 3, 70, 0, 1).get();
+		assertEquals(71, next.getSequence());
+		recovered.close();
+
+		ExpenseAuditJournal reopened = open();
+		assertEquals(70, reopened.history(70).get(0).getAmount());
+		assertEquals(71, reopened.history(70).get(0).getSequence());
+		reopened.close();
+	}
+
+	private ExpenseAuditJournal open() throws IOException {
+		return new ExpenseAuditJournal(directory.toString(), SEGMENT_SIZE, 16, 4096);
+	}
+
+	private List<Path> segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+		}
+	}
+
+	// Started in its own JVM by the kill test: appends until killed and prints the amount of each acknowledged record
+	static final class KilledWriter {
+
+		public static void main(String[] args) throws Exception {
+			ExpenseAuditJournal journal = new ExpenseAuditJournal(args[0], Integer.parseInt(args[1]), 16, 4096);
+			for (int i = 0; ; i++) {
+				int amount = i;
+				CompletableFuture<ExpenseAuditRecord> acknowledgement = journal.append(ExpenseEvent.Type.SUBMITTED,
+						i % 50, 3, 3, amount, 0, 1);
+				acknowledgement.thenAccept(record -> System.out.println(amount));
+				if (i % 32 == 31) {
+					acknowledgement.get(); // Keeps the queue from filling up
+				}
+			}
+		}
+	}
+
+}
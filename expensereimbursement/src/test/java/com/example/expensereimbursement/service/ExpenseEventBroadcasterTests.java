@@ -0,0 +1,227 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class ExpenseEventBroadcasterTests {
+
+	private static final Pattern EVENT = Pattern.compile("id:(\\S+)\nevent:(\\S+)\n");
+
+	@Test
+	void replaysTheEventsMissedSinceLastEventId() throws Exception {
+		ExpenseEventBroadcaster broadcaster = new ExpenseEventBroadcaster(16, 8, 0);
+		MockMvc mockMvc = mockMvc(broadcaster, List.of(new StringHttpMessageConverter(), new MappingJackson2HttpMessageConverter()));
+
+		MockHttpServletResponse first = connect(mockMvc, null);
+		for (int i = 1; i <= 3; i++) {
+			broadcaster.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, i));
+		}
+		List<String[]> received = awaitEvents(first, 4);
+		String lastSeen = received.get(3)[0];
+		String epoch = lastSeen.substring(0, lastSeen.indexOf('-'));
+		assertEquals(List.of(epoch + "-0", ExpenseEventBroadcaster.CONNECTED_EVENT), List.of(received.get(0)));
+		assertEquals(epoch + "-1", received.get(1)[0]);
+
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.APPROVED, 1));
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.REJECTED, 2));
+		MockHttpServletResponse resumed = connect(mockMvc, lastSeen);
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.APPROVED, 3));
+
+		List<String[]> replayed = awaitEvents(resumed, 3);
+		assertEquals(3, replayed.size());
+		assertEquals(List.of(epoch + "-4", "APPROVED"), List.of(replayed.get(0)));
+		assertEquals(List.of(epoch + "-5", "REJECTED"), List.of(replayed.get(1)));
+		assertEquals(List.of(epoch + "-6", "APPROVED"), List.of(replayed.get(2)));
+
+		// Resuming from the latest event replays nothing
+		MockHttpServletResponse current = connect(mockMvc, epoch + "-6");
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 4));
+		assertEquals(List.of(epoch + "-7", "SUBMITTED"), List.of(awaitEvents(current, 1).get(0)));
+	}
+
+	@Test
+	void resetsClientsWhoseGapCannotBeReplayed() throws Exception {
+		ExpenseEventBroadcaster broadcaster = new ExpenseEventBroadcaster(4, 3, 0);
+		MockMvc mockMvc = mockMvc(broadcaster, List.of(new StringHttpMessageConverter(), new MappingJackson2HttpMessageConverter()));
+
+		MockHttpServletResponse first = connect(mockMvc, null);
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 1));
+		String firstId = awaitEvents(first, 2).get(1)[0];
+		String epoch = firstId.substring(0, firstId.indexOf('-'));
+		for (int i = 2; i <= 6; i++) {
+			broadcaster.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, i));
+		}
+
+		// Out of the ring buffer, too many for the client queue, from a previous run, from the future, malformed
+		for (String lastEventId : List.of(epoch + "-1", epoch + "-2", "1-6", (Long.parseLong(epoch) - 1) + "-6",
+				epoch + "-9", "6")) {
+			List<String[]> received = awaitEvents(connect(mockMvc, lastEventId), 1);
+			assertEquals(1, received.size(), lastEventId);
+			assertEquals(List.of(epoch + "-6", ExpenseEventBroadcaster.RESET_EVENT), List.of(received.get(0)), lastEventId);
+		}
+
+		// Within both buffers the missed events are replayed
+		List<String[]> replayed = awaitEvents(connect(mockMvc, epoch + "-3"), 3);
+		assertEquals(epoch + "-4", replayed.get(0)[0]);
+		assertEquals(epoch + "-6", replayed.get(2)[0]);
+	}
+
+	@Test
+	void freshSubscriptionsStartFromTheCurrentLastEventId() throws Exception {
+		ExpenseEventBroadcaster broadcaster = new ExpenseEventBroadcaster(16, 8, 0);
+		MockMvc mockMvc = mockMvc(broadcaster, List.of(new StringHttpMessageConverter(), new MappingJackson2HttpMessageConverter()));
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 1));
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 2));
+
+		// Subscribe, then load the snapshot: an event published in between is streamed, not lost
+		MockHttpServletResponse dashboard = connect(mockMvc, null);
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.APPROVED, 1));
+		List<String[]> received = awaitEvents(dashboard, 2);
+		assertEquals(2, received.size());
+		String connected = received.get(0)[0];
+		assertEquals(ExpenseEventBroadcaster.CONNECTED_EVENT, received.get(0)[1]);
+		assertTrue(connected.endsWith("-2"), connected);
+
+		// The CONNECTED ID is a resume point like any other
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.REJECTED, 2));
+		List<String[]> resumed = awaitEvents(connect(mockMvc, connected), 2);
+		assertEquals(List.of("APPROVED", "REJECTED"), resumed.stream().map(event -> event[1]).toList());
+	}
+
+	@Test
+	void disconnectsSubscribersThatFallBehind() throws Exception {
+		ExpenseEventBroadcaster broadcaster = new ExpenseEventBroadcaster(16, 2, 0);
+		BlockingConverter slowClient = new BlockingConverter();
+		MockMvc mockMvc = mockMvc(broadcaster, List.of(slowClient, new StringHttpMessageConverter()));
+
+		connect(mockMvc, null);
+		assertEquals(1, broadcaster.getSubscriberCount());
+
+		// The first event is being written to the stalled client, the next two fill its queue
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 1));
+		assertTrue(slowClient.writing.await(5, TimeUnit.SECONDS));
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 2));
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 3));
+		assertEquals(1, broadcaster.getSubscriberCount());
+
+		// One more overflows the queue; the publisher drops the client instead of waiting for it
+		broadcaster.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 4));
+		assertEquals(0, broadcaster.getSubscriberCount());
+		slowClient.release.countDown();
+	}
+
+	private static MockMvc mockMvc(ExpenseEventBroadcaster broadcaster, List<HttpMessageConverter<?>> converters) {
+		return MockMvcBuilders.standaloneSetup(new StreamController(broadcaster)).setMessageConverters(converters.toArray(HttpMessageConverter[]::new)).build();
+	}
+
+	private static MockHttpServletResponse connect(MockMvc mockMvc, String lastEventId) throws Exception {
+		MockHttpServletRequestBuilder stream = get("/stream");
+		if (lastEventId != null) {
+			stream.header("Last-Event-ID", lastEventId);
+		}
+		return mockMvc.perform(stream).andExpect(request().asyncStarted()).andReturn().getResponse();
+	}
+
+	// Waits until the stream holds the expected number of events, or a second has passed; returns (id, name) pairs
+	private static List<String[]> awaitEvents(MockHttpServletResponse response, int expected) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (parseEvents(response).size() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		// Give anything unexpected a moment to arrive as well
+		Thread.sleep(50);
+		return parseEvents(response);
+	}
+
+	private static List<String[]> parseEvents(MockHttpServletResponse response) throws Exception {
+		List<String[]> events = new ArrayList<>();
+		Matcher matcher = EVENT.matcher(response.getContentAsString());
+		while (matcher.find()) {
+			events.add(new String[]{matcher.group(1), matcher.group(2)});
+		}
+		return events;
+	}
+
+	private static ExpenseEvent event(ExpenseEvent.Type type, int expenseId) {
+		Role role = new Role();
+		role.setId(1);
+		Employee employee = new Employee();
+		employee.setId(1);
+		employee.setRole(role);
+		Category category = new Category();
+		category.setId(1);
+		ExpenseStatus status = new ExpenseStatus();
+		status.setId(type == ExpenseEvent.Type.SUBMITTED ? 1 : type == ExpenseEvent.Type.APPROVED ? 2 : 3);
+		Expense expense = new Expense();
+		expense.setId(expenseId);
+		expense.setEmployee(employee);
+		expense.setCategory(category);
+		expense.setStatus(status);
+		expense.setAmount(100);
+		expense.setSubmitDate(LocalDateTime.now());
+		return new ExpenseEvent(type, expense, 1);
+	}
+
+	@RestController
+	static class StreamController {
+
+		private final ExpenseEventBroadcaster broadcaster;
+
+		StreamController(ExpenseEventBroadcaster broadcaster) {
+			this.broadcaster = broadcaster;
+		}
+
+		@GetMapping("/stream")
+		SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+			return broadcaster.subscribe(lastEventId);
+		}
+	}
+
+	// Stands in for a client that stops reading: writing an expense event blocks until released
+	static class BlockingConverter extends MappingJackson2HttpMessageConverter {
+
+		final CountDownLatch writing = new CountDownLatch(1);
+
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+			if (object instanceof ExpenseEvent) {
+				writing.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			super.writeInternal(object, type, outputMessage);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.Expense;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseHistoryCacheTests {
+
+	@Test
+	void servesRepeatedQueriesFromCache() {
+		ExpenseHistoryCache cache = new ExpenseHistoryCache(16, 0);
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.get(2, "Medical coverage", () -> expenses(loads.incrementAndGet()));
+		cache.get(2, "MEDICAL COVERAGE", () -> expenses(loads.incrementAndGet()));
+
+		assertEquals(1, loads.get());
+		assertEquals(1L, cache.getStatistics().get("hits"));
+		assertEquals(1L, cache.getStatistics().get("misses"));
+	}
+
+	@Test
+	void invalidatesOnlyAffectedKeys() {
+		ExpenseHistoryCache cache = new ExpenseHistoryCache(16, 0);
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.get(1, "Medical coverage", () -> expenses(loads.incrementAndGet()));
+		cache.get(1, null, () -> expenses(loads.incrementAndGet()));
+		cache.get(1, "Education allowances", () -> expenses(loads.incrementAndGet()));
+		cache.get(2, "Medical coverage", () -> expenses(loads.incrementAndGet()));
+
+		cache.invalidate(1, "Medical coverage");
+
+		cache.get(1, "Education allowances", () -> expenses(loads.incrementAndGet()));
+		cache.get(2, "Medical coverage", () -> expenses(loads.incrementAndGet()));
+		assertEquals(4, loads.get());
+
+		cache.get(1, "Medical coverage", () -> expenses(loads.incrementAndGet()));
+		cache.get(1, "", () -> expenses(loads.incrementAndGet()));
+		assertEquals(6, loads.get());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedEntries() {
+		ExpenseHistoryCache cache = new ExpenseHistoryCache(2, 0);
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.get(1, "a", () -> expenses(loads.incrementAndGet()));
+		cache.get(1, "b", () -> expenses(loads.incrementAndGet()));
+		cache.get(1, "a", () -> expenses(loads.incrementAndGet()));
+		cache.get(1, "c", () -> expenses(loads.incrementAndGet()));
+		cache.get(1, "a", () -> expenses(loads.incrementAndGet()));
+
+		assertEquals(3, loads.get());
+		assertEquals(1L, cache.getStatistics().get("evictions"));
+	}
+
+	@Test
+	void reloadsEntriesOlderThanTheTtl() throws Exception {
+		ExpenseHistoryCache cache = new ExpenseHistoryCache(16, 100);
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.get(1, "Travel", () -> expenses(loads.incrementAndGet()));
+		cache.get(1, "Travel", () -> expenses(loads.incrementAndGet()));
+		assertEquals(1, loads.get());
+
+		// Another instance changed the data; no event arrives here, the entry just expires
+		Thread.sleep(150);
+		List<Expense> reloaded = cache.get(1, "Travel", () -> expenses(loads.incrementAndGet()));
+		assertEquals(2, loads.get());
+		assertEquals(2, reloaded.get(0).getAmount());
+		assertEquals(1L, cache.getStatistics().get("expirations"));
+	}
+
+	@Test
+	void neverServesStaleResultsAfterWriteCommits() throws Exception {
+		ExpenseHistoryCache cache = new ExpenseHistoryCache(16, 0);
+		// Stands in for the expense table: the amount of the single row is the committed version
+		AtomicInteger database = new AtomicInteger();
+		// Highest version whose write has committed and invalidated the cache
+		AtomicInteger committed = new AtomicInteger();
+		AtomicBoolean running = new AtomicBoolean(true);
+
+		ExecutorService readers = Executors.newFixedThreadPool(8);
+		List<Future<?>> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			results.add(readers.submit(() -> {
+				while (running.get()) {
+					int visibleBefore = committed.get();
+					int version = cache.get(2, "Medical coverage", () -> {
+						int value = database.get();
+						pause();  // A slow query overlapping with writes
+						return expenses(value);
+					}).get(0).getAmount();
+					assertTrue(version >= visibleBefore, "read version " + version + " after " + visibleBefore + " committed");
+				}
+				return null;
+			}));
+		}
+
+		for (int version = 1; version <= 2000; version++) {
+			database.set(version);
+			cache.invalidate(2, "Medical coverage");
+			committed.set(version);
+
+			int read = cache.get(2, "Medical coverage", () -> expenses(database.get())).get(0).getAmount();
+			assertTrue(read >= version, "writer read " + read + " after committing " + version);
+		}
+
+		running.set(false);
+		readers.shutdown();
+		assertTrue(readers.awaitTermination(10, TimeUnit.SECONDS));
+		for (Future<?> result : results) {
+			result.get();
+		}
+	}
+
+	private static List<Expense> expenses(int amount) {
+		Expense expense = new Expense();
+		expense.setAmount(amount);
+		return List.of(expense);
+	}
+
+	private static void pause() {
+		try {
+			Thread.sleep(0, ThreadLocalRandom.current().nextInt(100_000));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
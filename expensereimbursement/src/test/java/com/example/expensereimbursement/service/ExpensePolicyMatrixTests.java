@@ -0,0 +1,207 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.CategoryPackageRepository;
+import com.example.expensereimbursement.repository.RoleCategoryPackageRepository;
+import com.example.expensereimbursement.repository.RoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExpensePolicyMatrixTests {
+
+	private static final int ENGINEER = 1;
+
+	// Large and far apart, as after years of inserts and deletes
+	private static final int MANAGER = 2_000_000_000;
+
+	private static final int TRAVEL = 1;
+
+	private static final int MEDICAL = 99_999;
+
+	private final List<Role> roles = new ArrayList<>();
+
+	private final List<CategoryPackage> categoryPackages = new ArrayList<>();
+
+	private final List<RoleCategoryPackage> roleCategoryPackages = new ArrayList<>();
+
+	private ExpensePolicyMatrix matrix;
+
+	@BeforeEach
+	void setUp() {
+		Role engineer = role(ENGINEER);
+		Role manager = role(MANAGER);
+		CategoryPackage travelSilver = categoryPackage(10, TRAVEL, 10000);
+		CategoryPackage travelGold = categoryPackage(100_000, TRAVEL, 20000);
+		CategoryPackage medicalGold = categoryPackage(1_999_999_999, MEDICAL, 50000);
+		associate(engineer, travelSilver);
+		associate(manager, travelSilver);
+		associate(manager, travelGold);
+		associate(manager, medicalGold);
+
+		RoleRepository roleRepository = mock(RoleRepository.class);
+		when(roleRepository.findAll()).thenReturn(roles);
+		CategoryPackageRepository categoryPackageRepository = mock(CategoryPackageRepository.class);
+		when(categoryPackageRepository.findAll()).thenReturn(categoryPackages);
+		RoleCategoryPackageRepository roleCategoryPackageRepository = mock(RoleCategoryPackageRepository.class);
+		when(roleCategoryPackageRepository.findAll()).thenReturn(roleCategoryPackages);
+
+		matrix = new ExpensePolicyMatrix();
+		ReflectionTestUtils.setField(matrix, "roleRepository", roleRepository);
+		ReflectionTestUtils.setField(matrix, "categoryPackageRepository", categoryPackageRepository);
+		ReflectionTestUtils.setField(matrix, "roleCategoryPackageRepository", roleCategoryPackageRepository);
+	}
+
+	@Test
+	void looksUpTheLimitOfTheRolesPackageForACategory() {
+		assertEquals(10000, matrix.limitForCategory(ENGINEER, TRAVEL));
+		// Two travel packages: the highest limit applies
+		assertEquals(20000, matrix.limitForCategory(MANAGER, TRAVEL));
+		assertEquals(50000, matrix.limitForCategory(MANAGER, MEDICAL));
+		assertEquals(-1, matrix.limitForCategory(ENGINEER, MEDICAL));
+		assertEquals(-1, matrix.limitForCategory(3, TRAVEL));
+		assertEquals(-1, matrix.limitForCategory(-1, -1));
+	}
+
+	@Test
+	void validatesEachItemWithItsOwnReason() {
+		List<ExpenseValidationResult> results = matrix.validateAll(Arrays.asList(
+				request(ENGINEER, 10, 10000),
+				request(ENGINEER, 10, 10001),
+				request(MANAGER, 1_999_999_999, 500),
+				request(ENGINEER, 100_000, 1),
+				request(3, 10, 1),
+				request(ENGINEER, 11, 1),
+				request((long) Integer.MAX_VALUE + ENGINEER, 10, 1),
+				new ExpenseValidationRequest(),
+				null));
+
+		assertEquals(9, results.size());
+		assertValid(results.get(0), 10000);
+		assertInvalid(results.get(1), "Expense amount exceeds the limit of 10000.");
+		assertEquals(10000, results.get(1).getExpenseLimit());
+		assertValid(results.get(2), 50000);
+		assertInvalid(results.get(3), "Role is not associated with this Category Package.");
+		assertInvalid(results.get(4), "Role not found for ID: 3");
+		assertInvalid(results.get(5), "Category Package not found for ID: 11");
+		assertInvalid(results.get(6), "Role not found for ID: " + ((long) Integer.MAX_VALUE + ENGINEER));
+		assertInvalid(results.get(7), "Role ID is required.");
+		assertInvalid(results.get(8), "Validation item is missing.");
+		for (int i = 0; i < results.size(); i++) {
+			assertEquals(i, results.get(i).getIndex());
+		}
+	}
+
+	@Test
+	void picksUpReferenceDataChanges() {
+		assertEquals(10000, matrix.limitForCategory(ENGINEER, TRAVEL));
+		categoryPackages.get(0).setExpenseLimit(15000);
+		assertEquals(10000, matrix.limitForCategory(ENGINEER, TRAVEL));
+
+		matrix.onReferenceDataChanged(new ReferenceDataChangedEvent(Set.of(ReferenceDataChangedEvent.CATEGORY_PACKAGE)));
+		assertEquals(15000, matrix.limitForCategory(ENGINEER, TRAVEL));
+	}
+
+	// mvn test -Dtest.groups=benchmark -Dtest.excluded-groups= [-Dpolicy-matrix.benchmark.items=...]
+	@Test
+	@Tag("benchmark")
+	void validatesThousandsOfItemsWithinAMillisecond() {
+		int items = Integer.getInteger("policy-matrix.benchmark.items", 5000);
+		int runs = 200;
+		// A realistic matrix: 200 roles, 50 categories with 3 packages each, one package per role and category
+		roles.clear();
+		categoryPackages.clear();
+		roleCategoryPackages.clear();
+		Random random = new Random(42);
+		for (int c = 0; c < 50; c++) {
+			for (int p = 0; p < 3; p++) {
+				categoryPackage(1000 + c * 3 + p, c, 10000 * (p + 1));
+			}
+		}
+		for (int r = 0; r < 200; r++) {
+			Role role = role(10 + r * 7);
+			for (int c = 0; c < 50; c++) {
+				associate(role, categoryPackages.get(c * 3 + random.nextInt(3)));
+			}
+		}
+		matrix.onReferenceDataChanged(new ReferenceDataChangedEvent(Set.of(ReferenceDataChangedEvent.ROLE)));
+
+		List<ExpenseValidationRequest> requests = new ArrayList<>();
+		for (int i = 0; i < items; i++) {
+			requests.add(request(10 + random.nextInt(200) * 7, 1000 + random.nextInt(150), random.nextInt(40000)));
+		}
+		matrix.validateAll(requests);  // Builds the matrix
+
+		long[] nanos = new long[runs];
+		for (int i = 0; i < runs * 2; i++) {
+			long start = System.nanoTime();
+			matrix.validateAll(requests);
+			if (i >= runs) {
+				nanos[i - runs] = System.nanoTime() - start;
+			}
+		}
+		Arrays.sort(nanos);
+		System.out.printf("Batch validation of %d items: p50 %.3f ms, p99 %.3f ms%n",
+				items, nanos[runs / 2] / 1e6, nanos[(int) (runs * 0.99)] / 1e6);
+		assertTrue(nanos[runs / 2] < 1_000_000, "median " + nanos[runs / 2] + " ns");
+	}
+
+	private Role role(int id) {
+		Role role = new Role();
+		role.setId(id);
+		role.setName("Role " + id);
+		role.setStatus(true);
+		roles.add(role);
+		return role;
+	}
+
+	private CategoryPackage categoryPackage(int id, int categoryId, int limit) {
+		Category category = new Category();
+		category.setId(categoryId);
+		CategoryPackage categoryPackage = new CategoryPackage();
+		categoryPackage.setId(id);
+		categoryPackage.setCategory(category);
+		categoryPackage.setExpenseLimit(limit);
+		categoryPackages.add(categoryPackage);
+		return categoryPackage;
+	}
+
+	private void associate(Role role, CategoryPackage categoryPackage) {
+		RoleCategoryPackage roleCategoryPackage = new RoleCategoryPackage();
+		roleCategoryPackage.setRole(role);
+		roleCategoryPackage.setCategoryPackage(categoryPackage);
+		roleCategoryPackages.add(roleCategoryPackage);
+	}
+
+	private static ExpenseValidationRequest request(long roleId, long categoryPackageId, int amount) {
+		ExpenseValidationRequest request = new ExpenseValidationRequest();
+		request.setRoleId(roleId);
+		request.setCategoryPackageId(categoryPackageId);
+		request.setExpenseAmount(amount);
+		return request;
+	}
+
+	private static void assertValid(ExpenseValidationResult result, int limit) {
+		assertTrue(result.isValid(), result.getReason());
+		assertNull(result.getReason());
+		assertEquals(limit, result.getExpenseLimit());
+	}
+
+	private static void assertInvalid(ExpenseValidationResult result, String reason) {
+		assertEquals(false, result.isValid());
+		assertEquals(reason, result.getReason());
+	}
+}
@@ -0,0 +1,144 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.ExpenseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExpenseSearchIndexTests {
+
+	private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+	// Rows of the expense table: id, description, statusId, categoryId, submitDate
+	private final List<Object[]> rows = new ArrayList<>();
+
+	private final ShardRouter shardRouter = new ShardRouter();
+
+	private ExpenseSearchIndex index;
+
+	// Runs while a chunk is being loaded, after its rows have been read
+	private Consumer<Integer> onChunkLoaded = fromId -> { };
+
+	@BeforeEach
+	void setUp() {
+		rows.add(new Object[]{1, "Conference travel to Berlin", 1, 1, NOW.minusDays(3)});
+		rows.add(new Object[]{2, "Conference registration fee", 1, 2, NOW.minusDays(2)});
+		rows.add(new Object[]{3, "Taxi from the conference conference venue", 2, 1, NOW.minusDays(1)});
+		rows.add(new Object[]{4, "Team lunch", 1, 1, NOW});
+
+		ExpenseRepository expenseRepository = mock(ExpenseRepository.class);
+		when(expenseRepository.findMaxId()).thenAnswer(invocation -> rows.size());
+		when(expenseRepository.findSearchRowsByIdRange(anyInt(), anyInt())).thenAnswer(invocation -> {
+			int fromId = invocation.getArgument(0);
+			int toId = invocation.getArgument(1);
+			List<Object[]> chunk = new ArrayList<>();
+			for (Object[] row : rows) {
+				if ((Integer) row[0] > fromId && (Integer) row[0] <= toId) {
+					chunk.add(row.clone());
+				}
+			}
+			onChunkLoaded.accept(fromId);
+			return chunk;
+		});
+
+		index = new ExpenseSearchIndex();
+		ReflectionTestUtils.setField(index, "expenseRepository", expenseRepository);
+		ReflectionTestUtils.setField(index, "shardRouter", shardRouter);
+		ReflectionTestUtils.setField(index, "buildChunkSize", 2);
+		ReflectionTestUtils.setField(index, "buildParallelism", 2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		shardRouter.close();
+	}
+
+	@Test
+	void ranksByTermFrequencyAndMatchesPrefixes() {
+		index.rebuild();
+
+		assertTrue(index.isReady());
+		// Expense 3 mentions the keyword twice; ties go to the newest expense
+		assertEquals(List.of(3, 2, 1), index.search("conference", null, null, null, null, 10));
+		assertEquals(List.of(3, 2), index.search("conference", null, null, null, null, 2));
+		assertEquals(List.of(1), index.search("CONF* berlin", null, null, null, null, 10));
+		assertEquals(List.of(), index.search("conference lunch", null, null, null, null, 10));
+	}
+
+	@Test
+	void filtersByStatusCategoryAndSubmitDate() {
+		index.rebuild();
+
+		assertEquals(List.of(2, 1), index.search("conference", 1, null, null, null, 10));
+		assertEquals(List.of(3, 1), index.search("conference", null, 1, null, null, 10));
+		assertEquals(List.of(3, 2), index.search("conference", null, null, NOW.minusDays(2), null, 10));
+		assertEquals(List.of(1), index.search("conference", null, null, null, NOW.minusDays(3), 10));
+	}
+
+	@Test
+	void followsSubmissionsAndStatusChanges() {
+		index.rebuild();
+
+		index.onExpenseEvent(event(ExpenseEvent.Type.SUBMITTED, 5, "Conference hotel", 1));
+		index.onExpenseEvent(event(ExpenseEvent.Type.APPROVED, 2, "Conference registration fee", 2));
+
+		assertEquals(List.of(5, 1), index.search("conference", 1, null, null, null, 10));
+		assertEquals(List.of(3, 2), index.search("conference", 2, null, null, null, 10));
+		assertEquals(List.of(5), index.search("hotel", null, null, null, null, 10));
+	}
+
+	@Test
+	void keepsStatusChangesPublishedWhileRebuilding() {
+		// Expense 1 is approved after its chunk read the pending row, expense 3 is rejected before its chunk is read
+		onChunkLoaded = fromId -> {
+			if (fromId == 0) {
+				index.onExpenseEvent(event(ExpenseEvent.Type.APPROVED, 1, "Conference travel to Berlin", 2));
+			}
+		};
+		rows.get(2)[2] = 3;
+		index.onExpenseEvent(event(ExpenseEvent.Type.REJECTED, 3, "Taxi from the conference conference venue", 3));
+
+		index.rebuild();
+
+		assertEquals(List.of(1), index.search("conference", 2, null, null, null, 10));
+		assertEquals(List.of(2), index.search("conference", 1, null, null, null, 10));
+		assertEquals(List.of(3), index.search("conference", 3, null, null, null, 10));
+
+		// Once built, changes apply directly and nothing buffered is replayed over them
+		index.onExpenseEvent(event(ExpenseEvent.Type.REJECTED, 1, "Conference travel to Berlin", 3));
+		assertEquals(List.of(3, 1), index.search("conference", 3, null, null, null, 10));
+	}
+
+	private static ExpenseEvent event(ExpenseEvent.Type type, int expenseId, String description, int statusId) {
+		Role role = new Role();
+		role.setId(1);
+		Employee employee = new Employee();
+		employee.setId(1);
+		employee.setRole(role);
+		Category category = new Category();
+		category.setId(1);
+		ExpenseStatus status = new ExpenseStatus();
+		status.setId(statusId);
+		Expense expense = new Expense();
+		expense.setId(expenseId);
+		expense.setEmployee(employee);
+		expense.setCategory(category);
+		expense.setStatus(status);
+		expense.setDescription(description);
+		expense.setSubmitDate(NOW.plusDays(1));
+		return new ExpenseEvent(type, expense, 1);
+	}
+}
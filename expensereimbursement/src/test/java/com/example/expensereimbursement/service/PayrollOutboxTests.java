@@ -0,0 +1,239 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The scheduled dispatch is pushed out of the way; the tests call dispatch() themselves
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:payroll;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"expense.payroll.sink=stub",
+		"expense.payroll.dispatch.interval-ms=3600000",
+		"expense.payroll.dispatch.batch-size=3",
+		"expense.payroll.dispatch.backoff-initial-ms=300",
+		"expense.payroll.dispatch.max-attempts=4",
+		"expense.audit-journal.directory=target/test-data/payroll/audit-journal"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PayrollOutboxTests {
+
+	private static final int APPROVED = 2;
+
+	private static final int REJECTED = 3;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private PayrollOutboxDispatcher dispatcher;
+
+	@Autowired
+	private StubPayrollSink sink;
+
+	@Autowired
+	private PayrollOutboxRepository payrollOutboxRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private ExpenseStatusRepository expenseStatusRepository;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	@BeforeAll
+	void seed() {
+		Role role = new Role();
+		role.setName("Engineer");
+		role.setStatus(true);
+		roleRepository.save(role);
+		for (int i = 1; i <= 2; i++) {
+			Employee employee = new Employee();
+			employee.setName("Employee " + i);
+			employee.setEmail("employee" + i + "@example.com");
+			employee.setRole(role);
+			employeeRepository.save(employee);
+		}
+		Category category = new Category();
+		category.setName("Travel");
+		category.setStatus(true);
+		categoryRepository.save(category);
+		for (String name : List.of("Pending", "Approved", "Rejected")) {
+			ExpenseStatus status = new ExpenseStatus();
+			status.setName(name);
+			status.setStatus(true);
+			expenseStatusRepository.save(status);
+		}
+	}
+
+	@Test
+	void deliversApprovalsInBatchesAndSkipsRejections() {
+		List<Integer> approved = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			int expenseId = submit(1 + i % 2);
+			if (i == 3) {
+				assertEquals("Expense status updated successfully!", expenseService.updateExpenseStatus(expenseId, REJECTED));
+			} else {
+				assertEquals("Expense status updated successfully!", expenseService.updateExpenseStatus(expenseId, APPROVED));
+				approved.add(expenseId);
+			}
+		}
+		int before = sink.getDelivered().size();
+
+		dispatcher.dispatch();
+
+		List<Integer> delivered = expenseIds(sink.getDelivered().subList(before, sink.getDelivered().size()));
+		assertEquals(approved, delivered);
+		assertEquals(0L, dispatcher.getStatistics().get("pending"));
+		for (PayrollOutboxEntry entry : payrollOutboxRepository.findAll()) {
+			if (approved.contains(entry.getExpenseId())) {
+				assertNotNull(entry.getDispatchedAt());
+			}
+		}
+	}
+
+	@Test
+	void retriesFailedBatchesWithBackoffKeepingEachEmployeesOrder() throws InterruptedException {
+		int before = sink.getDelivered().size();
+		int first = submit(1);
+		expenseService.updateExpenseStatus(first, APPROVED);
+
+		sink.failNext(1);
+		dispatcher.dispatch();
+		assertEquals(before, sink.getDelivered().size());
+		assertEquals(1L, dispatcher.getStatistics().get("pending"));
+
+		// Approved after the failure: employee 1's entry has to wait for the first one, employee 2's does not
+		int second = submit(1);
+		expenseService.updateExpenseStatus(second, APPROVED);
+		int other = submit(2);
+		expenseService.updateExpenseStatus(other, APPROVED);
+		dispatcher.dispatch();
+		assertEquals(List.of(other), expenseIds(sink.getDelivered().subList(before, sink.getDelivered().size())));
+
+		Thread.sleep(400);
+		dispatcher.dispatch();
+		assertEquals(List.of(other, first, second), expenseIds(sink.getDelivered().subList(before, sink.getDelivered().size())));
+
+		PayrollOutboxEntry retried = payrollOutboxRepository.findAll().stream()
+				.filter(entry -> entry.getExpenseId() == first).findFirst().orElseThrow();
+		assertEquals(2, retried.getAttempts());
+		assertNull(retried.getLastError());
+		assertTrue((Long) dispatcher.getStatistics().get("failedBatches") >= 1);
+	}
+
+	@Test
+	void backingOffEntriesDoNotCrowdOutDueOnes() throws InterruptedException {
+		int before = sink.getDelivered().size();
+		// A whole batch of employee 1's entries fails and backs off
+		List<Integer> failed = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			int expenseId = submit(1);
+			expenseService.updateExpenseStatus(expenseId, APPROVED);
+			failed.add(expenseId);
+		}
+		// The batch fails, and so does the retry of its first entry on its own; the others wait behind that one
+		sink.failNext(2);
+		dispatcher.dispatch();
+		assertEquals(before, sink.getDelivered().size());
+
+		// Employee 2's entry sits behind a full batch of entries that are not due, and is still sent
+		int other = submit(2);
+		expenseService.updateExpenseStatus(other, APPROVED);
+		dispatcher.dispatch();
+		assertEquals(List.of(other), expenseIds(sink.getDelivered().subList(before, sink.getDelivered().size())));
+
+		// Two failed attempts: the first entry backs off for twice the initial backoff
+		Thread.sleep(700);
+		dispatcher.dispatch();
+		List<Integer> expected = new ArrayList<>(List.of(other));
+		expected.addAll(failed);
+		assertEquals(expected, expenseIds(sink.getDelivered().subList(before, sink.getDelivered().size())));
+	}
+
+	@Test
+	void aRejectedEntryIsRetriedAloneAndParkedWithoutStallingTheOthers() throws InterruptedException {
+		int before = sink.getDelivered().size();
+		int rejected = submit(1);
+		expenseService.updateExpenseStatus(rejected, APPROVED);
+		int other = submit(2);
+		expenseService.updateExpenseStatus(other, APPROVED);
+		int later = submit(1);
+		expenseService.updateExpenseStatus(later, APPROVED);
+		sink.rejectExpense(rejected);
+
+		// The batch fails; sent one by one, employee 2's entry goes through and employee 1's later entry waits
+		dispatcher.dispatch();
+		assertEquals(List.of(other), expenseIds(sink.getDelivered().subList(before, sink.getDelivered().size())));
+
+		// Out of attempts (batch, alone, batch, alone), the rejected entry is parked and stops holding the later one back
+		Thread.sleep(700);
+		dispatcher.dispatch();
+		assertEquals(List.of(other, later), expenseIds(sink.getDelivered().subList(before, sink.getDelivered().size())));
+
+		PayrollOutboxEntry parked = payrollOutboxRepository.findAll().stream()
+				.filter(entry -> entry.getExpenseId() == rejected).findFirst().orElseThrow();
+		assertNotNull(parked.getParkedAt());
+		assertNull(parked.getDispatchedAt());
+		assertEquals(4, parked.getAttempts());
+		assertEquals("Payroll rejected expense " + rejected + ".", parked.getLastError());
+		Map<String, Object> statistics = dispatcher.getStatistics();
+		assertEquals(0L, statistics.get("pending"));
+		assertTrue((Long) statistics.get("parked") >= 1);
+	}
+
+	@Test
+	void anApprovalIsQueuedOnlyOnce() {
+		int expenseId = submit(1);
+		assertEquals("Expense status updated successfully!", expenseService.updateExpenseStatus(expenseId, APPROVED));
+		assertEquals("Error: Expense has already been approved or rejected.", expenseService.updateExpenseStatus(expenseId, APPROVED));
+
+		List<PayrollOutboxEntry> entries = payrollOutboxRepository.findAll().stream()
+				.filter(entry -> entry.getExpenseId() == expenseId).toList();
+		assertEquals(1, entries.size());
+		// Redeliveries carry the same message ID, which payroll uses to drop duplicates
+		assertEquals("expense-" + expenseId, entries.get(0).getMessageId());
+		dispatcher.dispatch();
+		assertEquals(0L, dispatcher.getStatistics().get("pending"));
+	}
+
+	private int submit(int employeeId) {
+		Expense expense = new Expense();
+		Employee employee = new Employee();
+		employee.setId(employeeId);
+		Category category = new Category();
+		category.setId(1);
+		expense.setEmployee(employee);
+		expense.setCategory(category);
+		expense.setAmount(1000);
+		expense.setDescription("Hotel");
+		assertEquals("Expense submitted successfully!", expenseService.addExpense(expense));
+		return expenseRepository.findAll().stream().mapToInt(Expense::getId).max().orElseThrow();
+	}
+
+	private static List<Integer> expenseIds(List<Map<String, Object>> messages) {
+		return messages.stream().map(message -> (Integer) message.get("expenseId")).toList();
+	}
+}
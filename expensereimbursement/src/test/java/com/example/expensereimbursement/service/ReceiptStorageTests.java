@@ -0,0 +1,125 @@
+package com.example.expensereimbursement.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiptStorageTests {
+
+	// Size of the generated "PDF" for the benchmark; override with -Dreceipts.benchmark.size-mb=...
+	private static final long BENCHMARK_SIZE = Long.getLong("receipts.benchmark.size-mb", 64) * 1024 * 1024;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void storesIdenticalContentOnce() throws Exception {
+		ReceiptStorage storage = new ReceiptStorage(directory.toString(), 1024);
+		byte[] content = "%PDF-1.7 receipt".getBytes(StandardCharsets.US_ASCII);
+
+		ReceiptStorage.StoredContent first = storage.store(new ByteArrayInputStream(content));
+		ReceiptStorage.StoredContent second = storage.store(new ByteArrayInputStream(content));
+
+		assertEquals(first.hash(), second.hash());
+		assertEquals(content.length, first.size());
+		try (Stream<Path> files = Files.walk(directory)) {
+			assertEquals(1, files.filter(Files::isRegularFile).count());
+		}
+	}
+
+	@Test
+	void rejectsUploadsOverTheLimit() {
+		ReceiptStorage storage = new ReceiptStorage(directory.toString(), 10);
+		assertThrows(IllegalArgumentException.class, () -> storage.store(new ByteArrayInputStream(new byte[11])));
+	}
+
+	@Test
+	void transfersRequestedRange() throws Exception {
+		ReceiptStorage storage = new ReceiptStorage(directory.toString(), 1024);
+		String hash = storage.store(new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.US_ASCII))).hash();
+
+		Path out = directory.resolve("range.out");
+		try (FileChannel target = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			storage.transfer(hash, 3, 4, target);
+		}
+		assertEquals("3456", Files.readString(out));
+	}
+
+	// Benchmark: streams a large generated file in and out and reports throughput and bytes allocated on the heap
+	// mvn test -Dtest.groups=benchmark -Dtest.excluded-groups=
+	@Test
+	@Tag("benchmark")
+	void largeReceiptsAreStreamedWithoutBufferingOnTheHeap() throws Exception {
+		ReceiptStorage storage = new ReceiptStorage(directory.toString(), Long.MAX_VALUE);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().threadId();
+
+		long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		ReceiptStorage.StoredContent stored = storage.store(new GeneratedContent(BENCHMARK_SIZE));
+		long uploadNanos = System.nanoTime() - start;
+		long uploadAllocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+		Path out = directory.resolve("download.out");
+		allocatedBefore = threads.getThreadAllocatedBytes(thread);
+		start = System.nanoTime();
+		try (FileChannel target = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			storage.transfer(stored.hash(), 0, stored.size(), target);
+		}
+		long downloadNanos = System.nanoTime() - start;
+		long downloadAllocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+		System.out.printf("Receipt store benchmark (%d MB): upload %.1f MB/s, %d KB allocated; download %.1f MB/s, %d KB allocated%n",
+				BENCHMARK_SIZE >> 20,
+				BENCHMARK_SIZE / 1048576.0 / (uploadNanos / 1e9), uploadAllocated >> 10,
+				BENCHMARK_SIZE / 1048576.0 / (downloadNanos / 1e9), downloadAllocated >> 10);
+
+		assertEquals(BENCHMARK_SIZE, stored.size());
+		assertEquals(BENCHMARK_SIZE, Files.size(out));
+		// Heap use must not grow with the file: far less than the file is allocated on either path
+		assertTrue(uploadAllocated < 4 * 1024 * 1024, "upload allocated " + uploadAllocated + " bytes");
+		assertTrue(downloadAllocated < 1024 * 1024, "download allocated " + downloadAllocated + " bytes");
+	}
+
+	// Produces a deterministic byte stream of the given size without holding it in memory
+	private static final class GeneratedContent extends InputStream {
+		private final long size;
+		private long position;
+
+		GeneratedContent(long size) {
+			this.size = size;
+		}
+
+		@Override
+		public int read() {
+			return position < size ? (int) (position++ * 31 & 0xFF) : -1;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			if (position >= size) {
+				return -1;
+			}
+			int count = (int) Math.min(length, size - position);
+			for (int i = 0; i < count; i++) {
+				buffer[offset + i] = (byte) (position++ * 31);
+			}
+			return count;
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.example.expensereimbursement.service;
+
+import com.example.expensereimbursement.ExpensereimbursementApplication;
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two application instances on one shared database: a change made through one must reach the caches of the other
+// within the poll interval
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReferenceDataCoherenceTests {
+
+	private static final long POLL_INTERVAL_MS = 200;
+
+	private static final String DATABASE = "jdbc:h2:mem:coherence;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	private ConfigurableApplicationContext first;
+
+	private ConfigurableApplicationContext second;
+
+	private int roleId;
+
+	private int categoryId;
+
+	private int packageId;
+
+	@BeforeAll
+	void start() {
+		first = start("first", "create-drop");
+		second = start("second", "none");
+
+		Role role = new Role();
+		role.setName("Engineer");
+		role.setStatus(true);
+		roleId = first.getBean(RoleRepository.class).save(role).getId();
+
+		Employee employee = new Employee();
+		employee.setName("Employee 1");
+		employee.setEmail("employee1@example.com");
+		employee.setRole(role);
+		first.getBean(EmployeeRepository.class).save(employee);
+
+		Category category = new Category();
+		category.setName("Travel");
+		category.setStatus(true);
+		categoryId = first.getBean(CategoryRepository.class).save(category).getId();
+
+		for (String name : List.of("Pending", "Approved", "Rejected")) {
+			ExpenseStatus status = new ExpenseStatus();
+			status.setName(name);
+			status.setStatus(true);
+			first.getBean(ExpenseStatusRepository.class).save(status);
+		}
+
+		CategoryPackage categoryPackage = new CategoryPackage();
+		categoryPackage.setCategory(category);
+		categoryPackage.setPackageName("Silver");
+		categoryPackage.setExpenseLimit(10000);
+		packageId = first.getBean(CategoryPackageRepository.class).save(categoryPackage).getId();
+
+		RoleCategoryPackage roleCategoryPackage = new RoleCategoryPackage();
+		roleCategoryPackage.setRole(role);
+		roleCategoryPackage.setCategoryPackage(categoryPackage);
+		first.getBean(RoleCategoryPackageRepository.class).save(roleCategoryPackage);
+
+		Expense expense = new Expense();
+		expense.setEmployee(employee);
+		expense.setCategory(category);
+		expense.setAmount(500);
+		expense.setDescription("Train ticket");
+		assertEquals("Expense submitted successfully!", first.getBean(ExpenseService.class).addExpense(expense));
+	}
+
+	@AfterAll
+	void stop() {
+		// The second instance first: the first one drops the schema on shutdown
+		second.close();
+		first.close();
+	}
+
+	@Test
+	void limitChangeReachesTheOtherInstanceWithinThePollInterval() {
+		ExpensePolicyMatrix firstMatrix = first.getBean(ExpensePolicyMatrix.class);
+		ExpensePolicyMatrix secondMatrix = second.getBean(ExpensePolicyMatrix.class);
+		awaitWithinBound(() -> secondMatrix.limitForCategory(roleId, categoryId) == 10000);
+
+		CategoryPackageRepository repository = first.getBean(CategoryPackageRepository.class);
+		CategoryPackage categoryPackage = repository.findById(packageId).orElseThrow();
+		categoryPackage.setExpenseLimit(20000);
+		repository.save(categoryPackage);
+
+		// The writing instance sees its own change right after the commit
+		assertEquals(20000, firstMatrix.limitForCategory(roleId, categoryId));
+		awaitWithinBound(() -> secondMatrix.limitForCategory(roleId, categoryId) == 20000);
+	}
+
+	@Test
+	void categoryRenameReachesTheOtherInstancesHistoryCache() {
+		ExpenseService secondService = second.getBean(ExpenseService.class);
+		List<Expense> cached = secondService.getExpensesByStatusAndCategory(1, "");
+		assertEquals(1, cached.size());
+		String before = cached.get(0).getCategory().getName();
+
+		CategoryRepository repository = first.getBean(CategoryRepository.class);
+		Category category = repository.findById(categoryId).orElseThrow();
+		category.setName(before + " (renamed)");
+		repository.save(category);
+
+		awaitWithinBound(() -> secondService.getExpensesByStatusAndCategory(1, "").get(0)
+				.getCategory().getName().equals(before + " (renamed)"));
+	}
+
+	// Passed as arguments: builder properties are only defaults and would lose to application-test.properties
+	private static ConfigurableApplicationContext start(String name, String ddlAuto) {
+		return new SpringApplicationBuilder(ExpensereimbursementApplication.class)
+				.profiles("test")
+				.web(WebApplicationType.NONE)
+				.run(
+						"--spring.datasource.url=" + DATABASE,
+						"--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+						"--expense.coherence.poll-interval-ms=" + POLL_INTERVAL_MS,
+						"--expense.audit-journal.directory=target/test-data/coherence/" + name + "/audit-journal",
+						"--expense.receipts.directory=target/test-data/coherence/" + name + "/receipts");
+	}
+
+	// Waits for the condition and checks it held within the poll interval (plus slack for the poll query itself)
+	private static void awaitWithinBound(BooleanSupplier condition) {
+		long bound = POLL_INTERVAL_MS * 5;
+		long start = System.currentTimeMillis();
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() - start < bound, "not visible within " + bound + " ms");
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package com.example.expensereimbursement.service;
+
+import com.example.config.ShardRoutingDataSource;
+import com.example.expensereimbursement.controller.ReactiveExpenseController;
+import com.example.expensereimbursement.model.*;
+import com.example.expensereimbursement.repository.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Three embedded H2 databases as shards, with small ID ranges so the shard of each ID is easy to check
+@SpringBootTest(properties = {
+		"expense.sharding.enabled=true",
+		"expense.sharding.id-range-size=1000",
+		"expense.sharding.shards[0].url=jdbc:h2:mem:shard0;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"expense.sharding.shards[1].url=jdbc:h2:mem:shard1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"expense.sharding.shards[2].url=jdbc:h2:mem:shard2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"spring.jpa.open-in-view=false",
+		"expense.audit-journal.directory=target/test-data/sharding/audit-journal"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ShardedExpenseServiceTests {
+
+	private static final int SHARDS = 3;
+
+	private static final int EMPLOYEES = 6;
+
+	private static final int EXPENSES_PER_EMPLOYEE = 5;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private ShardRouter shardRouter;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Autowired
+	private ShardRoutingDataSource shardRoutingDataSource;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private ExpenseStatusRepository expenseStatusRepository;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	@BeforeAll
+	void seed() {
+		assertEquals(SHARDS, shardRouter.getShardCount());
+
+		// Reference data is replicated: the same rows, with the same IDs, on every shard
+		for (int shard = 0; shard < SHARDS; shard++) {
+			shardRouter.onShard(shard, () -> {
+				Role role = new Role();
+				role.setName("Engineer");
+				role.setStatus(true);
+				roleRepository.save(role);
+				for (int i = 1; i <= EMPLOYEES; i++) {
+					Employee employee = new Employee();
+					employee.setName("Employee " + i);
+					employee.setEmail("employee" + i + "@example.com");
+					employee.setRole(role);
+					employeeRepository.save(employee);
+				}
+				Category category = new Category();
+				category.setName("Travel");
+				category.setStatus(true);
+				categoryRepository.save(category);
+				for (String name : List.of("Pending", "Approved", "Rejected")) {
+					ExpenseStatus status = new ExpenseStatus();
+					status.setName(name);
+					status.setStatus(true);
+					expenseStatusRepository.save(status);
+				}
+				return null;
+			});
+		}
+
+		for (int i = 0; i < EXPENSES_PER_EMPLOYEE; i++) {
+			for (int employeeId = 1; employeeId <= EMPLOYEES; employeeId++) {
+				Expense expense = new Expense();
+				Employee employee = new Employee();
+				employee.setId(employeeId);
+				Category category = new Category();
+				category.setId(1);
+				expense.setEmployee(employee);
+				expense.setCategory(category);
+				expense.setAmount(100 * employeeId + i);
+				expense.setDescription("Train ticket " + i);
+				assertEquals("Expense submitted successfully!", expenseService.addExpense(expense));
+			}
+		}
+	}
+
+	@Test
+	void storesExpensesOnTheShardOfTheirEmployeeWithGloballyUniqueIds() {
+		Set<Integer> ids = new HashSet<>();
+		for (int shard = 0; shard < SHARDS; shard++) {
+			int current = shard;
+			List<Expense> expenses = shardRouter.onShard(shard, () -> expenseRepository.findAll());
+			assertEquals(EMPLOYEES / SHARDS * EXPENSES_PER_EMPLOYEE, expenses.size());
+			for (Expense expense : expenses) {
+				assertEquals(current, shardRouter.shardForEmployee(expense.getEmployee().getId()));
+				assertEquals(current, shardRouter.shardForExpense(expense.getId()));
+				assertTrue(ids.add(expense.getId()), "duplicate expense ID " + expense.getId());
+			}
+		}
+	}
+
+	@Test
+	void perEmployeeQueriesReadOneShard() {
+		LocalDate today = LocalDate.now();
+		for (int employeeId = 1; employeeId <= EMPLOYEES; employeeId++) {
+			List<Expense> expenses = expenseService.getExpensesByEmployeeAndDateRange(employeeId, today.minusDays(1), today.plusDays(1));
+			assertEquals(EXPENSES_PER_EMPLOYEE, expenses.size());
+			for (Expense expense : expenses) {
+				assertEquals(employeeId, expense.getEmployee().getId());
+			}
+		}
+	}
+
+	@Test
+	void crossEmployeeQueriesMergeAllShardsNewestFirst() {
+		List<Expense> pending = expenseService.getAllExpenses();
+
+		assertEquals(countPending(), pending.size());
+		for (int i = 1; i < pending.size(); i++) {
+			LocalDateTime newer = pending.get(i - 1).getSubmitDate();
+			assertTrue(!newer.isBefore(pending.get(i).getSubmitDate()), "not sorted newest first at " + i);
+		}
+	}
+
+	@Test
+	void sparseFieldsetsMergeAllShardsNewestFirst() {
+		List<Map<String, Object>> pending = expenseService.getAllExpenses("id,submitDate");
+
+		assertEquals(countPending(), pending.size());
+		for (int i = 0; i < pending.size(); i++) {
+			assertEquals(Set.of("id", "submitDate"), pending.get(i).keySet());
+			if (i > 0) {
+				LocalDateTime newer = (LocalDateTime) pending.get(i - 1).get("submitDate");
+				assertTrue(!newer.isBefore((LocalDateTime) pending.get(i).get("submitDate")), "not sorted newest first at " + i);
+			}
+		}
+	}
+
+	@Test
+	void disablesTheReactiveReadPathWhichIsNotShardAware() {
+		assertTrue(applicationContext.getBeansOfType(ReactiveExpenseReader.class).isEmpty());
+		assertTrue(applicationContext.getBeansOfType(ReactiveExpenseController.class).isEmpty());
+	}
+
+	@Test
+	void updatesAnExpenseOnItsShard() {
+		// An expense of employee 3, which lives on shard 0
+		int expenseId = expenseService.getExpensesByEmployeeAndDateRange(3, LocalDate.now(), LocalDate.now()).get(0).getId();
+
+		assertEquals("Expense status updated successfully!", expenseService.updateExpenseStatus(expenseId, 2));
+
+		List<Expense> approved = expenseService.getExpensesByStatusAndCategory(2, "Travel");
+		assertEquals(1, approved.size());
+		assertEquals(expenseId, approved.get(0).getId());
+	}
+
+	@Test
+	void failsAnInsertPastTheEndOfItsShardsIdRange() throws Exception {
+		// Employee 2 lives on the last shard, whose range ends at 3000; move its auto-increment to the end of the range
+		int shard = shardRouter.shardForEmployee(2);
+		assertEquals(SHARDS - 1, shard);
+		long stored = shardRouter.onShard(shard, () -> expenseRepository.count());
+		restartExpenseIds(shard, 3000);
+		try {
+			assertEquals("Expense submitted successfully!", expenseService.addExpense(travelExpense(2, "Last ID of the range")));
+			assertThrows(IllegalStateException.class, () -> expenseService.addExpense(travelExpense(2, "Past the range")));
+			assertEquals(stored + 1, shardRouter.onShard(shard, () -> expenseRepository.count()));
+		} finally {
+			int maxId = shardRouter.onShard(shard, () -> expenseRepository.findAll()).stream()
+					.mapToInt(Expense::getId).filter(id -> id < 3000).max().orElse(2000);
+			restartExpenseIds(shard, maxId + 1);
+			shardRouter.onShard(shard, () -> {
+				expenseRepository.deleteById(3000);
+				return null;
+			});
+		}
+
+		// An ID past the last range belongs to no shard rather than to the last one
+		assertThrows(IllegalArgumentException.class, () -> shardRouter.shardForExpense(3001));
+		assertTrue(expenseService.updateExpenseStatus(3001, 2).startsWith("Error: Expense not found"));
+	}
+
+	private void restartExpenseIds(int shard, long next) throws SQLException {
+		try (Connection connection = shardRoutingDataSource.getShard(shard).getConnection();
+			 Statement statement = connection.createStatement()) {
+			statement.execute("alter table expense alter column id restart with " + next);
+		}
+	}
+
+	private static Expense travelExpense(int employeeId, String description) {
+		Expense expense = new Expense();
+		Employee employee = new Employee();
+		employee.setId(employeeId);
+		Category category = new Category();
+		category.setId(1);
+		expense.setEmployee(employee);
+		expense.setCategory(category);
+		expense.setAmount(100);
+		expense.setDescription(description);
+		return expense;
+	}
+
+	// Pending expenses on all shards, counted directly; other tests decide some of the seeded ones
+	private long countPending() {
+		long pending = 0;
+		for (int shard = 0; shard < SHARDS; shard++) {
+			pending += shardRouter.onShard(shard, () -> expenseRepository.findAll()).stream()
+					.filter(expense -> expense.getStatus().getId() == 1).count();
+		}
+		return pending;
+	}
+}